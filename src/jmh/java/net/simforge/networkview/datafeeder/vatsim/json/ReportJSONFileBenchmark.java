@@ -0,0 +1,47 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.Network;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportJSONFileBenchmark {
+
+    @Param({"600", "2000", "5000"})
+    public int pilots;
+
+    private String json;
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        json = new SyntheticFeed(1L, pilots, LocalDateTime.of(2021, 5, 24, 0, 0), Duration.ofSeconds(15)).next();
+        bytes = json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ReportJSONFile parseString() {
+        return new ReportJSONFile(Network.VATSIM, json);
+    }
+
+    @Benchmark
+    public ReportJSONFile parseStream() throws IOException {
+        return ReportJSONFile.parse(Network.VATSIM, new ByteArrayInputStream(bytes));
+    }
+
+    @Benchmark
+    public PilotBatch parseColumnar() throws IOException {
+        return ReportJSONFile.parse(Network.VATSIM, new ByteArrayInputStream(bytes), ReportJSONFile.ParseOptions.COLUMNAR).getPilotBatch();
+    }
+}
@@ -0,0 +1,72 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.Network;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Queries a storage tree with one report per minute, 600 reports is about 10 hours of data, 5000 reports about 3.5 days.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportJSONStorageBenchmark {
+
+    @Param({"600", "2000", "5000"})
+    public int reports;
+
+    private Path storageRoot;
+    private ReportJSONStorage storage;
+    private String middleReport;
+
+    @Setup
+    public void setup() throws IOException {
+        storageRoot = Files.createTempDirectory("report-storage");
+        storage = ReportJSONStorage.getStorage(storageRoot.toString(), Network.VATSIM);
+
+        final LocalDateTime start = LocalDateTime.of(2021, 5, 24, 0, 0, 0);
+        for (int i = 0; i < reports; i++) {
+            final File file = storage.getReportFile(SyntheticFeed.TIMESTAMP.format(start.plusMinutes(i)));
+            //noinspection ResultOfMethodCallIgnored
+            file.getParentFile().mkdirs();
+            //noinspection ResultOfMethodCallIgnored
+            file.createNewFile();
+        }
+        middleReport = SyntheticFeed.TIMESTAMP.format(start.plusMinutes(reports / 2));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (final Stream<Path> paths = Files.walk(storageRoot)) {
+            //noinspection ResultOfMethodCallIgnored
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public List<String> listAllReports() throws IOException {
+        return storage.listAllReports();
+    }
+
+    @Benchmark
+    public String listReportsAfterMiddle() {
+        return storage.listReports(middleReport, null).skip(1).findFirst().orElse(null);
+    }
+
+    @Benchmark
+    public String getNextReport() throws IOException {
+        return storage.getNextReport(middleReport);
+    }
+}
@@ -0,0 +1,48 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.Network;
+import net.simforge.networkview.core.Position;
+import net.simforge.networkview.core.report.persistence.Report;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SavePilotPositionsBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(SavePilotPositionsBenchmark.class);
+
+    @Param({"600", "2000", "5000"})
+    public int pilots;
+
+    private Report report;
+    private PilotBatch batch;
+
+    @Setup
+    public void setup() throws IOException {
+        final byte[] bytes = new SyntheticFeed(1L, pilots, LocalDateTime.of(2021, 5, 24, 0, 0), Duration.ofSeconds(15)).next().getBytes(StandardCharsets.UTF_8);
+        final ReportJSONFile reportFile = ReportJSONFile.parse(Network.VATSIM, new ByteArrayInputStream(bytes), ReportJSONFile.ParseOptions.COLUMNAR);
+
+        report = new Report();
+        report.setId(1L);
+        report.setReport(reportFile.getUpdate());
+        batch = reportFile.getPilotBatch();
+    }
+
+    @Benchmark
+    public List<Position> toPositions() {
+        return SaveCompactified.toPositions(report, batch, logger);
+    }
+}
@@ -2,4 +2,8 @@ package net.simforge.networkview.datafeeder;
 
 public class SettingNames {
     public static final String storageRoot = "storage.root";
+    public static final String storageColdRoot = "storage.coldRoot";
+    public static final String storageLayout = "storage.layout";
+    public static final String storageKeyframeInterval = "storage.keyframeInterval";
+    public static final String storageCodec = "storage.codec";
 }
@@ -6,6 +6,7 @@ import net.simforge.networkview.core.Network;
 import net.simforge.networkview.core.report.ReportUtils;
 import net.simforge.networkview.core.report.compact.CompactifiedStorage;
 import net.simforge.networkview.datafeeder.vatsim.json.ReportJSONStorage;
+import net.simforge.networkview.datafeeder.vatsim.json.ValidationLog;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -18,6 +19,8 @@ import java.io.File;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/")
@@ -67,23 +70,44 @@ public class StatusController {
 
     @GetMapping("disk-status")
     public ResponseEntity<DiskStatusDto> getDiskStatus() {
-        final File file = new File("/");
+        final String storageRoot = Settings.get(SettingNames.storageRoot);
+        final String coldStorageRoot = Settings.get(SettingNames.storageColdRoot);
 
-        final long freeSpaceBytes = file.getFreeSpace();
-        final long freeSpaceMb = freeSpaceBytes / (1024 * 1024);
+        final long freeSpaceMb = getFreeSpaceMb(storageRoot != null ? storageRoot : "/");
+        final Long coldFreeSpaceMb = coldStorageRoot != null ? getFreeSpaceMb(coldStorageRoot) : null;
 
-        final boolean ok = freeSpaceMb > 1000;
+        final boolean ok = freeSpaceMb > 1000 && (coldFreeSpaceMb == null || coldFreeSpaceMb > 1000);
 
         if (ok) {
             return ResponseEntity.ok(new DiskStatusDto(
                     "ok",
-                    freeSpaceMb));
+                    freeSpaceMb,
+                    coldFreeSpaceMb));
         } else {
             return ResponseEntity.status(HttpStatus.EXPECTATION_FAILED)
                     .body(new DiskStatusDto(
                             "fail",
-                            freeSpaceMb));
+                            freeSpaceMb,
+                            coldFreeSpaceMb));
+        }
+    }
+
+    /**
+     * Free space of the disk of the root, a root not created yet is measured on its nearest existing parent.
+     */
+    private static long getFreeSpaceMb(final String root) {
+        File file = new File(root).getAbsoluteFile();
+        while (file != null && !file.exists()) {
+            file = file.getParentFile();
         }
+        return file != null ? file.getFreeSpace() / (1024 * 1024) : 0;
+    }
+
+    @GetMapping("vatsim-validation")
+    public Map<String, Long> getVatsimValidation() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        ValidationLog.getTotals().forEach((rule, count) -> result.put(rule.name(), count));
+        return result;
     }
 
     private static String bytesToGigabytes(long bytes) {
@@ -120,10 +144,12 @@ public class StatusController {
     private static class DiskStatusDto {
         private final String status;
         private final long freeSpaceMb;
+        private final Long coldFreeSpaceMb;
 
-        private DiskStatusDto(final String status, final long freeSpaceMb) {
+        private DiskStatusDto(final String status, final long freeSpaceMb, final Long coldFreeSpaceMb) {
             this.status = status;
             this.freeSpaceMb = freeSpaceMb;
+            this.coldFreeSpaceMb = coldFreeSpaceMb;
         }
 
         public String getStatus() {
@@ -133,5 +159,9 @@ public class StatusController {
         public long getFreeSpaceMb() {
             return freeSpaceMb;
         }
+
+        public Long getColdFreeSpaceMb() {
+            return coldFreeSpaceMb;
+        }
     }
 }
@@ -0,0 +1,163 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 of report data without its top level general member, so the same data published under new update has the same hash.
+ * Data is hashed in UTF-8 bytes as they come, JSON structure characters are ASCII and are recognized without decoding.
+ * Bytes of a top level string are held back until it is known whether it is the general name.
+ */
+class ContentHash {
+    private static final byte[] GENERAL = "general".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int VALUE = 0;
+    private static final int NAME = 1;
+    private static final int AFTER_NAME = 2;
+    private static final int GENERAL_VALUE = 3;
+
+    private final MessageDigest digest;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private int state = VALUE;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private int matched;
+    private boolean generalSkipped;
+
+    ContentHash() {
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    static String of(final byte[] data) {
+        final ContentHash hash = new ContentHash();
+        hash.update(data, 0, data.length);
+        return hash.getValue();
+    }
+
+    void update(final byte[] data, final int offset, final int length) {
+        int hashedFrom = offset;
+        for (int i = offset; i < offset + length; i++) {
+            final byte b = data[i];
+            switch (state) {
+                case VALUE:
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                        }
+                    } else if (b == '"') {
+                        if (depth == 1 && !generalSkipped) {
+                            digest.update(data, hashedFrom, i - hashedFrom);
+                            hashedFrom = i + 1;
+                            pending.reset();
+                            pending.write(b);
+                            matched = 0;
+                            state = NAME;
+                        } else {
+                            inString = true;
+                        }
+                    } else if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                    }
+                    break;
+
+                case NAME:
+                    pending.write(b);
+                    hashedFrom = i + 1;
+                    if (b == '"' && matched == GENERAL.length) {
+                        state = AFTER_NAME;
+                    } else if (b == '"') {
+                        flushPending();
+                    } else if (matched < GENERAL.length && b == GENERAL[matched]) {
+                        matched++;
+                    } else {
+                        // not the general name, the rest of the string is hashed as it comes
+                        flushPending();
+                        inString = true;
+                        escaped = b == '\\';
+                    }
+                    break;
+
+                case AFTER_NAME:
+                    if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                        pending.write(b);
+                        hashedFrom = i + 1;
+                    } else if (b == ':') {
+                        pending.reset();
+                        hashedFrom = i + 1;
+                        state = GENERAL_VALUE;
+                    } else {
+                        flushPending();
+                        i--; // the byte is handled as value
+                    }
+                    break;
+
+                case GENERAL_VALUE:
+                    hashedFrom = i + 1;
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                        }
+                    } else if (b == '"') {
+                        inString = true;
+                    } else if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        if (depth == 1) {
+                            // end of the report after a primitive value, the brace is hashed
+                            endGeneral();
+                            hashedFrom = i;
+                            i--;
+                        } else if (--depth == 1) {
+                            endGeneral();
+                        }
+                    } else if (b == ',' && depth == 1) {
+                        endGeneral();
+                        hashedFrom = i;
+                    }
+                    break;
+
+                default:
+                    throw new IllegalStateException("unknown state " + state);
+            }
+        }
+        if (state == VALUE) {
+            digest.update(data, hashedFrom, offset + length - hashedFrom);
+        }
+    }
+
+    String getValue() {
+        flushPending();
+        return String.format("%064x", new BigInteger(1, digest.digest()));
+    }
+
+    private void flushPending() {
+        if (state == NAME || state == AFTER_NAME) {
+            digest.update(pending.toByteArray());
+            pending.reset();
+            state = VALUE;
+        }
+    }
+
+    private void endGeneral() {
+        generalSkipped = true;
+        state = VALUE;
+    }
+}
@@ -1,6 +1,5 @@
 package net.simforge.networkview.datafeeder.vatsim.json;
 
-import net.simforge.commons.io.IOHelper;
 import net.simforge.commons.legacy.BM;
 import net.simforge.commons.legacy.misc.Settings;
 import net.simforge.commons.runtime.BaseTask;
@@ -9,16 +8,17 @@ import net.simforge.networkview.core.Network;
 import net.simforge.networkview.datafeeder.SettingNames;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.zip.Deflater;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -32,12 +32,16 @@ public class DailyArchive extends BaseTask {
 
     private final Network network = Network.VATSIM;
     private final String storageRoot;
+    private final ReportJSONStorage storage;
+    private final ReportJSONStorage.Layout layout;
     private final boolean singleRun;
 
     public DailyArchive(final Properties properties) {
         super("DayArch-VATSIM-JSON");
 
         this.storageRoot = Settings.get(SettingNames.storageRoot) != null ? Settings.get(SettingNames.storageRoot) : ReportJSONStorage.DEFAULT_STORAGE_ROOT;
+        this.storage = ReportJSONStorage.getStorage(storageRoot, network);
+        this.layout = storage.getLayout();
         this.singleRun = Boolean.parseBoolean(properties.getProperty(ARG_SINGLE, "false"));
 
         setBaseSleepTime(3600000);
@@ -53,6 +57,7 @@ public class DailyArchive extends BaseTask {
 
         logger.info("Network     : " + network);
         logger.info("Storage root: " + storageRoot);
+        logger.info("Layout      : " + layout);
         logger.info("Single run  : " + singleRun);
     }
 
@@ -63,15 +68,21 @@ public class DailyArchive extends BaseTask {
 
     @Override
     protected void process() {
+        if (layout != ReportJSONStorage.Layout.FILES) {
+            return; // segments are sealed by GZipReports and deltas are not compressed, there are no compressed report files to archive
+        }
+
         BM.start("process");
         try {
 
-            final File root = new File(storageRoot + "/" + network.name());
-
             File dateFolderFile = null;
             List<File> filesToArchive = null;
 
-            final File[] years = listFolders(root, yearPattern);
+            // days moved to the cold root before archival are archived there
+            final List<File> years = new ArrayList<>();
+            for (final File root : storage.getRoots()) {
+                years.addAll(Arrays.asList(listFolders(root, yearPattern)));
+            }
             for (final File year : years) {
                 if (dateFolderFile != null) {
                     break;
@@ -90,21 +101,21 @@ public class DailyArchive extends BaseTask {
                         }
 
                         final File[] files = listFiles(date);
-                        final boolean anyNonGz = Arrays.stream(files).anyMatch(f -> !f.getName().endsWith(".gz"));
-                        final List<File> gzReportFiles = Arrays.stream(files).filter(f -> f.getName().endsWith(".gz")).collect(Collectors.toList());
+                        final boolean anyNonCompressed = Arrays.stream(files).anyMatch(f -> !ReportJSONStorage.isCompressedReportFile(f.getName()));
+                        final List<File> compressedReportFiles = Arrays.stream(files).filter(f -> ReportJSONStorage.isCompressedReportFile(f.getName())).collect(Collectors.toList());
 
-                        if (gzReportFiles.isEmpty()) {
-                            logger.warn("Date folder {} - no gz files found", date.getName());
+                        if (compressedReportFiles.isEmpty()) {
+                            logger.warn("Date folder {} - no compressed files found", date.getName());
                             continue;
                         }
 
-                        if (anyNonGz) {
-                            logger.warn("Date folder {} - non-gz files presented", date.getName());
+                        if (anyNonCompressed) {
+                            logger.warn("Date folder {} - non-compressed files presented", date.getName());
                             continue;
                         }
 
                         dateFolderFile = date;
-                        filesToArchive = gzReportFiles;
+                        filesToArchive = compressedReportFiles;
                     }
                 }
             }
@@ -128,16 +139,21 @@ public class DailyArchive extends BaseTask {
             try (final FileOutputStream fos = new FileOutputStream(tempFile);
                  final ZipOutputStream zos = new ZipOutputStream(fos)) {
 
-                zos.setLevel(Deflater.BEST_COMPRESSION);
-
                 int counter = 0;
                 for (final File file : filesToArchive) {
-                    try (final FileInputStream fis = new FileInputStream(file)) {
-                        final ZipEntry zipEntry = new ZipEntry(file.getName());
-                        zos.putNextEntry(zipEntry);
-                        IOHelper.copyStream(fis, zos);
-                        zos.closeEntry();
-                    }
+                    // files are compressed already, deflating them again costs time and saves nothing
+                    final byte[] data = Files.readAllBytes(file.toPath());
+                    final CRC32 crc = new CRC32();
+                    crc.update(data, 0, data.length);
+
+                    final ZipEntry zipEntry = new ZipEntry(file.getName());
+                    zipEntry.setMethod(ZipEntry.STORED);
+                    zipEntry.setSize(data.length);
+                    zipEntry.setCompressedSize(data.length);
+                    zipEntry.setCrc(crc.getValue());
+                    zos.putNextEntry(zipEntry);
+                    zos.write(data);
+                    zos.closeEntry();
 
                     counter++;
 
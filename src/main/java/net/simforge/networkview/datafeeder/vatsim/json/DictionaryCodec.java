@@ -0,0 +1,107 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Deflate with a preset dictionary trained on stored reports, see {@link ReportDictionaries} and {@link TrainDictionary}.
+ * The file header keeps the dictionary version, length and CRC of the report, so files stay readable after retraining.
+ * Version 0 means no dictionary, it is used until the first dictionary is trained.
+ */
+public class DictionaryCodec implements ReportCodec {
+    public static final String EXTENSION = ".json.dz";
+
+    private static final int MAGIC = 0x564a445a; // "VJDZ"
+
+    private final ReportDictionaries dictionaries;
+
+    DictionaryCodec(final ReportDictionaries dictionaries) {
+        this.dictionaries = dictionaries;
+    }
+
+    @Override
+    public String getExtension() {
+        return EXTENSION;
+    }
+
+    @Override
+    public byte[] encode(final byte[] data) throws IOException {
+        final int version = dictionaries.getCurrentVersion();
+        final byte[] dictionary = dictionaries.get(version);
+
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(data.length / 8);
+        final DataOutputStream out = new DataOutputStream(result);
+        out.writeInt(MAGIC);
+        out.writeInt(version);
+        out.writeInt(data.length);
+        out.writeLong(crc.getValue());
+
+        final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        try {
+            if (dictionary.length > 0) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(data);
+            deflater.finish();
+            final byte[] buffer = new byte[65536];
+            while (!deflater.finished()) {
+                final int n = deflater.deflate(buffer);
+                out.write(buffer, 0, n);
+            }
+        } finally {
+            deflater.end();
+        }
+        return result.toByteArray();
+    }
+
+    @Override
+    public byte[] decode(final byte[] data) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a dictionary compressed report");
+        }
+        final int version = in.readInt();
+        final int length = in.readInt();
+        final long expectedCrc = in.readLong();
+        final int headerLength = 4 + 4 + 4 + 8;
+
+        final byte[] dictionary = dictionaries.get(version);
+        final byte[] result = new byte[length];
+        final Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary.length > 0) {
+                inflater.setDictionary(dictionary);
+            }
+            inflater.setInput(data, headerLength, data.length - headerLength);
+            int position = 0;
+            while (position < length) {
+                final int n = inflater.inflate(result, position, length - position);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("dictionary compressed report is truncated");
+                }
+                position += n;
+            }
+        } catch (final DataFormatException e) {
+            throw new IOException("dictionary compressed report is corrupted", e);
+        } finally {
+            inflater.end();
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(result, 0, result.length);
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("dictionary compressed report does not match its CRC, dictionary version " + version);
+        }
+        return result;
+    }
+}
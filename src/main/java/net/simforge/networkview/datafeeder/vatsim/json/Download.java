@@ -14,19 +14,22 @@ import net.simforge.networkview.datafeeder.SettingNames;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 public class Download extends BaseTask {
     private static final String ARG_PERIOD = "period";
     private static final String ARG_SINGLE = "single";
     private static final String ARG_STATUS_FILE_INTERVAL = "status-file-interval";
+    private static final String ARG_HEDGE_AFTER = "hedge-after";
+    private static final String ARG_CADENCE = "cadence";
 
     private Network network;
     @SuppressWarnings("FieldCanBeLocal")
@@ -38,11 +41,34 @@ public class Download extends BaseTask {
     private int downloadPeriod = 110;
     private int statusFileInterval = 30;
     private boolean singleRun = false;
+    private long hedgeAfter = 0;
+    private boolean cadenceEnabled = true;
     private boolean endRequired = true;
     private String endSection = null;
 
     private Gson gson = new Gson();
 
+    // shared by status file and data downloads, keeps connections alive between download periods
+    private FeedHttpClient httpClient = new FeedHttpClient(120000, 120000);
+
+    private MirrorScorer mirrors = new MirrorScorer();
+
+    // runs fetches when hedging is on, a stalled fetch keeps its thread until it is cancelled
+    private ExecutorService hedgeExecutor;
+
+    private FeedFetcher fetcher;
+
+    // plans fetches by learned publication cadence of the feed, null when fixed period is used
+    private FeedCadence cadence;
+
+    // content hashes of recently saved reports, data repeated under a new update is saved as alias of the first report
+    private Map<String, String> recentHashes = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > 16;
+        }
+    };
+
     public Download(Properties properties) {
         super("Download-VATSIM-JSON");
         init(properties);
@@ -66,11 +92,19 @@ public class Download extends BaseTask {
 
         singleRun = Boolean.parseBoolean(properties.getProperty(ARG_SINGLE, Boolean.toString(singleRun)));
 
+        cadenceEnabled = Boolean.parseBoolean(properties.getProperty(ARG_CADENCE, Boolean.toString(cadenceEnabled)));
+
         try {
             statusFileInterval = Integer.parseInt(properties.getProperty(ARG_STATUS_FILE_INTERVAL));
         } catch (Exception e) {
             //noop
         }
+
+        try {
+            hedgeAfter = Long.parseLong(properties.getProperty(ARG_HEDGE_AFTER));
+        } catch (Exception e) {
+            //noop
+        }
     }
 
     @Override
@@ -86,6 +120,21 @@ public class Download extends BaseTask {
         logger.info("Storage root   : " + storageRoot);
         logger.info("Download period: " + downloadPeriod + " secs");
         logger.info("Single run     : " + singleRun);
+        logger.info("Hedge after    : " + (hedgeAfter > 0 ? hedgeAfter + " ms" : "off"));
+        logger.info("Cadence        : " + cadenceEnabled);
+
+        if (cadenceEnabled) {
+            cadence = new FeedCadence(downloadPeriod * 1000L);
+        }
+
+        if (hedgeAfter > 0) {
+            hedgeExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "Download-Hedge-" + network);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        fetcher = new FeedFetcher(httpClient, mirrors, hedgeExecutor, hedgeAfter);
 
         storage = ReportJSONStorage.getStorage(storageRoot, network);
 
@@ -99,6 +148,15 @@ public class Download extends BaseTask {
         setBaseSleepTime(downloadPeriod * 1000L);
     }
 
+    @Override
+    protected void shutdown() {
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+
+        super.shutdown();
+    }
+
     @Override
     protected void process() {
         BM.start("Download.process");
@@ -133,25 +191,70 @@ public class Download extends BaseTask {
                     urls.addAll(sourceUrls);
                 }
 
-                int index = (int) (Math.random() * (double) urls.size());
-                String url = urls.remove(index);
+                String url = mirrors.select(urls);
+                urls.remove(url);
 
-                String data;
+                FeedFetcher.Fetch fetch;
                 try {
                     logger.debug("Downloading from " + url + "...");
 //                    data = IOHelper.download(url);
-                    data = download(url);
+                    fetch = fetcher.fetch(url, urls);
                 } catch (IOException e) {
                     logger.error("Can't download report", e);
                     Misc.sleepBM(500L);
                     continue;
                 }
-                logger.debug("Downloaded data size is " + data.length() + " bytes");
+                url = fetch.getUrl();
+                long elapsed = fetch.getElapsed();
+                FeedFetcher.FeedResponse response = fetch.getResponse();
+
+                if (response == null) {
+                    logger.debug("Data at " + url + " is not modified since previous download. Trying again...");
+                    Misc.sleepBM(getRetryDelay(iteration));
+                    continue;
+                }
+
+                logger.debug("Downloaded data size is " + response.getSize() + " bytes");
+
+                String update;
+                try {
+                    update = response.readUpdate();
+                } catch (Exception e) {
+                    update = null;
+                }
+                if (update != null) {
+                    mirrors.success(url, elapsed, update);
+                    if (cadence != null) {
+                        cadence.observe(update, System.currentTimeMillis());
+                    }
+                }
+
+                // stale data is rejected by general.update only, full parse is done for the report to be saved
+                if (update != null && lastReport != null && !ReportUtils.isTimestampGreater(update, lastReport)) {
+                    fetcher.accept(url, response);
+                    logger.warn(ReportUtils.log(update) + " - Downloaded data is not actual. Trying again...");
+                    Misc.sleepBM(getRetryDelay(iteration));
+                    continue;
+                }
 
+                // the hash is computed while the data is read, repeated data is not decoded
+                String hash = response.getHash();
+                String original = recentHashes.get(hash);
+                if (update != null && original != null) {
+                    fetcher.accept(url, response);
+                    storage.saveAlias(update, original);
+                    logger.info(ReportUtils.log(update) + " - Downloaded data is the same as of " + ReportUtils.log(original) + ", saved as alias");
+                    lastReport = update;
+                    planNextDownload();
+                    break;
+                }
+
+                String data = response.getData();
                 ReportJSONFile reportFile;
                 try {
                     reportFile = new ReportJSONFile(network, data);
                 } catch (Exception e) {
+                    mirrors.failure(url, elapsed);
                     logger.error("Error on parsing downloaded report, URL was " + url, e);
 
                     IOHelper.saveFile(new File("./Download-" + network + "-FAILED-REPORT-DATA.txt"), data);
@@ -160,18 +263,22 @@ public class Download extends BaseTask {
                     Misc.sleepBM(500L);
                     continue;
                 }
+                fetcher.accept(url, response);
 
-                String update = reportFile.getUpdate();
+                update = reportFile.getUpdate();
                 logger.info(ReportUtils.log(update) + " - Downloaded");
                 if (lastReport != null && !ReportUtils.isTimestampGreater(update, lastReport)) {
                     logger.warn(ReportUtils.log(update) + " - Downloaded data is not actual. Trying again...");
-                    Misc.sleepBM(10000);
+                    Misc.sleepBM(getRetryDelay(iteration));
                     continue;
                 }
 
                 storage.saveReport(update, data);
                 logger.debug(ReportUtils.log(update) + " - Downloaded data saved");
+                logger.debug("Mirrors: " + mirrors);
                 lastReport = update;
+                recentHashes.put(hash, update);
+                planNextDownload();
 
                 break;
             }
@@ -181,6 +288,18 @@ public class Download extends BaseTask {
         }
     }
 
+    private void planNextDownload() {
+        if (cadence != null && cadence.getPeriodMillis() != 0) {
+            long nextDelay = cadence.nextDelay(System.currentTimeMillis());
+            logger.debug("Feed period is " + cadence.getPeriodMillis() + " ms, next download in " + nextDelay + " ms");
+            setNextSleepTime(nextDelay);
+        }
+    }
+
+    private long getRetryDelay(int iteration) {
+        return cadence != null ? cadence.retryDelay(iteration) : 10000L;
+    }
+
     private void loadStatusFile() throws IOException {
         BM.start("Download.loadStatusFile");
         try {
@@ -235,29 +354,8 @@ public class Download extends BaseTask {
     }
 
     private String download(String urlStr) throws IOException {
-        URL url = new URL(urlStr);
-        HttpURLConnection urlConnx = (HttpURLConnection) url.openConnection();
-        urlConnx.setConnectTimeout(120000);
-        urlConnx.setReadTimeout(120000);
-
-        int responseCode = urlConnx.getResponseCode();
-        boolean redirect = false;
-        if (responseCode != HttpURLConnection.HTTP_OK) {
-            if (responseCode == HttpURLConnection.HTTP_MOVED_TEMP
-                    || responseCode == HttpURLConnection.HTTP_MOVED_PERM
-                    || responseCode == HttpURLConnection.HTTP_SEE_OTHER) {
-                redirect = true;
-            }
+        try (FeedHttpClient.Response response = httpClient.get(urlStr, Collections.emptyMap(), null)) {
+            return response.readText();
         }
-
-        if (redirect) {
-            String newUrl = urlConnx.getHeaderField("Location");
-            logger.warn("Redirected to URL : " + newUrl);
-            urlConnx = (HttpURLConnection) new URL(newUrl).openConnection();
-        }
-
-        InputStream urlInputStream = urlConnx.getInputStream();
-//        return readInputStreamWithTimeout(urlInputStream);
-        return IOHelper.readInputStream(urlInputStream);
     }
 }
@@ -0,0 +1,180 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.report.ReportUtils;
+
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Learns publication cadence of the feed from general.update values and predicts when the next report becomes available.
+ * Observed intervals between updates are multiples of the publication period, the shortest of them is usually the sampling interval.
+ * Updates jitter by a few seconds, so the period is the longest one which explains the intervals as multiples within the jitter,
+ * except of a few late updates, and keeps updates at the same phase. Availability lag is the shortest time between an update and
+ * the moment it was downloaded,
+ * so clock difference with the feed is included in it.
+ */
+class FeedCadence {
+    private static final int HISTORY = 32;
+    private static final long MIN_PERIOD_MILLIS = 5000;
+    private static final long MAX_PERIOD_SECONDS = 600;
+    private static final long JITTER_SECONDS = 3;
+    private static final double OUTLIER_SHARE = 0.1;
+    private static final long MARGIN_MILLIS = 1000;
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long DEFAULT_RETRY_MILLIS = 10000;
+
+    private final long targetPeriodMillis;
+    private final Deque<Long> updates = new ArrayDeque<>();
+    private final Deque<Long> lags = new ArrayDeque<>();
+    private long periodMillis;
+
+    /**
+     * @param targetPeriodMillis wanted interval between saved reports, the next fetch aims at the first publication after it
+     */
+    FeedCadence(final long targetPeriodMillis) {
+        this.targetPeriodMillis = targetPeriodMillis;
+    }
+
+    /**
+     * Records general.update of downloaded data, updates older than or equal to already observed ones are ignored.
+     */
+    synchronized void observe(final String update, final long downloadedMillis) {
+        final long updateMillis = ReportUtils.fromTimestampJava(update).toInstant(ZoneOffset.UTC).toEpochMilli();
+        if (!updates.isEmpty() && updateMillis <= updates.peekLast()) {
+            return;
+        }
+
+        add(updates, updateMillis);
+        add(lags, downloadedMillis - updateMillis);
+        periodMillis = estimatePeriod();
+    }
+
+    /**
+     * Returns estimated publication period, 0 if it is not known yet.
+     */
+    synchronized long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    /**
+     * Returns delay of the next fetch, it is planned just after the predicted publication of the next report to save.
+     */
+    synchronized long nextDelay(final long nowMillis) {
+        if (periodMillis == 0) {
+            return targetPeriodMillis;
+        }
+
+        final long lag = Collections.min(lags);
+        final long periods = Math.max((targetPeriodMillis + periodMillis / 2) / periodMillis, 1);
+        long available = updates.peekLast() + periods * periodMillis + lag + MARGIN_MILLIS;
+        while (available <= nowMillis) {
+            available += periodMillis;
+        }
+        return available - nowMillis;
+    }
+
+    /**
+     * Returns delay before retry when the feed has no new report yet, it grows with attempts up to the publication period
+     * or the fixed retry delay used without cadence.
+     */
+    synchronized long retryDelay(final int attempt) {
+        if (periodMillis == 0) {
+            return DEFAULT_RETRY_MILLIS;
+        }
+        final long delay = MIN_RETRY_MILLIS << Math.min(Math.max(attempt - 1, 0), 16);
+        return Math.min(delay, Math.min(periodMillis, DEFAULT_RETRY_MILLIS));
+    }
+
+    private long estimatePeriod() {
+        final List<Long> intervals = new ArrayList<>();
+        Long previous = null;
+        for (final Long update : updates) {
+            if (previous != null && update - previous >= MIN_PERIOD_MILLIS) {
+                intervals.add((update - previous) / 1000);
+            }
+            previous = update;
+        }
+        if (intervals.isEmpty()) {
+            return 0;
+        }
+
+        final int outliers = (int) (intervals.size() * OUTLIER_SHARE);
+        final List<Long> sorted = new ArrayList<>(intervals);
+        Collections.sort(sorted);
+        final long maxPeriod = Math.min(sorted.get(sorted.size() / 2) + JITTER_SECONDS, MAX_PERIOD_SECONDS);
+
+        // candidates explaining the intervals as multiples within jitter, except of a few outliers, with their phase coherence
+        final Map<Long, Double> coherences = new HashMap<>();
+        double bestCoherence = 0;
+        for (long period = MIN_PERIOD_MILLIS / 1000; period <= maxPeriod; period++) {
+            if (countFitting(intervals, period) < intervals.size() - outliers) {
+                continue;
+            }
+            final double coherence = coherence(period);
+            coherences.put(period, coherence);
+            bestCoherence = Math.max(bestCoherence, coherence);
+        }
+
+        // divisors of the period are coherent as well, so the longest one close to the best is taken
+        final double margin = (double) outliers / updates.size();
+        long period = 0;
+        for (final Map.Entry<Long, Double> entry : coherences.entrySet()) {
+            if (entry.getValue() >= bestCoherence - margin - 1e-9) {
+                period = Math.max(period, entry.getKey());
+            }
+        }
+        if (period == 0) {
+            return 0;
+        }
+
+        long seconds = 0;
+        long multiples = 0;
+        for (final long interval : intervals) {
+            final long multiple = Math.round((double) interval / period);
+            if (Math.abs(interval - multiple * period) <= JITTER_SECONDS) {
+                seconds += interval;
+                multiples += multiple;
+            }
+        }
+        return Math.max(Math.round(seconds * 1000.0 / multiples), MIN_PERIOD_MILLIS);
+    }
+
+    private static int countFitting(final List<Long> intervals, final long period) {
+        int count = 0;
+        for (final long interval : intervals) {
+            final long multiple = Math.round((double) interval / period);
+            if (multiple > 0 && Math.abs(interval - multiple * period) <= JITTER_SECONDS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Length of the mean phase vector of updates for the period, 1 when all updates are published at the same phase.
+     */
+    private double coherence(final long period) {
+        final long first = updates.peekFirst();
+        double cos = 0;
+        double sin = 0;
+        for (final long update : updates) {
+            final double phase = 2 * Math.PI * ((update - first) / 1000.0) / period;
+            cos += Math.cos(phase);
+            sin += Math.sin(phase);
+        }
+        return Math.hypot(cos, sin) / updates.size();
+    }
+
+    private static void add(final Deque<Long> values, final long value) {
+        values.addLast(value);
+        if (values.size() > HISTORY) {
+            values.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.report.ReportUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches feed data from mirrors for {@link Download}. Requests carry validators of the last accepted response of the mirror,
+ * so unchanged data is not downloaded again. With hedging on, a second mirror is asked when the first one does not answer in time.
+ */
+class FeedFetcher {
+    private static final Logger logger = LoggerFactory.getLogger(FeedFetcher.class);
+
+    private final FeedHttpClient httpClient;
+    private final MirrorScorer mirrors;
+    // runs fetches when hedging is on, a stalled fetch keeps its thread until it is cancelled
+    private final ExecutorService hedgeExecutor;
+    private final long hedgeAfterMillis;
+
+    // validators of the last accepted response of each URL, sent with the next request to the same URL
+    private final Map<String, FeedResponse> lastResponses = new ConcurrentHashMap<>();
+
+    /**
+     * @param hedgeExecutor executor of hedged fetches, null turns hedging off
+     */
+    FeedFetcher(final FeedHttpClient httpClient, final MirrorScorer mirrors, final ExecutorService hedgeExecutor, final long hedgeAfterMillis) {
+        this.httpClient = httpClient;
+        this.mirrors = mirrors;
+        this.hedgeExecutor = hedgeExecutor;
+        this.hedgeAfterMillis = hedgeAfterMillis;
+    }
+
+    /**
+     * Fetches the mirror, hedging it with one of other mirrors when hedging is on. The hedge mirror is removed from other mirrors.
+     * Failures and not modified responses are recorded to the mirror scorer, success is left to the caller as it needs general.update.
+     */
+    Fetch fetch(final String url, final List<String> otherUrls) throws IOException {
+        if (hedgeExecutor != null && !otherUrls.isEmpty()) {
+            return fetchHedged(url, otherUrls);
+        }
+        return new Fetch(url).call();
+    }
+
+    /**
+     * Remembers validators of the response, the next fetch of the URL gets no data if it is not modified since.
+     */
+    void accept(final String url, final FeedResponse response) {
+        lastResponses.put(url, response);
+    }
+
+    /**
+     * Fetches the first mirror and, if it does not answer within hedge budget, the second one in parallel.
+     * After a response with data the other fetch gets one more hedge budget, the response with the latest general.update wins
+     * and the fetch still running is cancelled, so a stalled mirror costs the budget instead of the timeout.
+     */
+    private Fetch fetchHedged(final String url, final List<String> otherUrls) throws IOException {
+        final CompletionService<Fetch> completion = new ExecutorCompletionService<>(hedgeExecutor);
+        final Fetch first = new Fetch(url);
+        completion.submit(first);
+
+        Future<Fetch> done;
+        try {
+            done = completion.poll(hedgeAfterMillis, TimeUnit.MILLISECONDS);
+        } catch (final InterruptedException e) {
+            first.cancel();
+            throw new InterruptedIOException("interrupted while downloading from " + url);
+        }
+        if (done != null) {
+            return getFetch(done);
+        }
+
+        final String hedgeUrl = mirrors.select(otherUrls);
+        otherUrls.remove(hedgeUrl);
+        logger.warn("No answer from " + url + " in " + hedgeAfterMillis + " ms, hedging with " + hedgeUrl);
+        final Fetch second = new Fetch(hedgeUrl);
+        completion.submit(second);
+
+        Fetch result = null;
+        IOException error = null;
+        try {
+            long deadline = 0;
+            for (int i = 0; i < 2; i++) {
+                if (result != null && result.response != null) {
+                    // a response with data waits for the other fetch no longer than the hedge budget
+                    if (deadline == 0) {
+                        deadline = System.currentTimeMillis() + hedgeAfterMillis;
+                    }
+                    done = completion.poll(Math.max(deadline - System.currentTimeMillis(), 0), TimeUnit.MILLISECONDS);
+                } else {
+                    done = completion.take();
+                }
+                if (done == null) {
+                    break;
+                }
+                try {
+                    final Fetch fetch = getFetch(done);
+                    if (result == null || fetch.isFresherThan(result)) {
+                        result = fetch;
+                    }
+                } catch (final IOException e) {
+                    error = e;
+                }
+            }
+        } catch (final InterruptedException e) {
+            // the result is returned when there is one, the caller still sees the interruption
+            Thread.currentThread().interrupt();
+            error = new InterruptedIOException("interrupted while downloading from " + url + " and " + hedgeUrl);
+        } finally {
+            if (first.cancel() && result == second) {
+                mirrors.failure(first.url, first.elapsed());
+            }
+            second.cancel();
+        }
+
+        if (result == null) {
+            throw error;
+        }
+        return result;
+    }
+
+    private static Fetch getFetch(final Future<Fetch> done) throws IOException {
+        try {
+            return done.get();
+        } catch (final InterruptedException e) {
+            throw new InterruptedIOException("interrupted while downloading");
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("download failed", e.getCause());
+        }
+    }
+
+    /**
+     * Downloads data sending validators of the previous response of the URL.
+     * Returns null when the server answers 304 or the ETag is the same as previous one, the body is not downloaded then.
+     */
+    private FeedResponse downloadIfModified(final Fetch fetch) throws IOException {
+        final String urlStr = fetch.url;
+        final FeedResponse previous = lastResponses.get(urlStr);
+
+        final Map<String, String> headers = new HashMap<>();
+        if (previous != null) {
+            if (previous.etag != null) {
+                headers.put("If-None-Match", previous.etag);
+            }
+            if (previous.lastModified != null) {
+                headers.put("If-Modified-Since", previous.lastModified);
+            }
+        }
+
+        try (final FeedHttpClient.Response response = httpClient.get(urlStr, headers, fetch::attach)) {
+            if (!urlStr.equals(response.getUrl())) {
+                logger.debug("Redirected to URL : " + response.getUrl());
+            }
+
+            if (response.getStatus() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                logger.debug("Not modified " + urlStr + ": " + response.getTimings());
+                return null;
+            }
+
+            final String etag = response.getHeader("ETag");
+            if (etag != null && previous != null && etag.equals(previous.etag)) {
+                return null;
+            }
+
+            final ContentHash hash = new ContentHash();
+            final byte[] data = response.readBytes(hash);
+            logger.debug("Downloaded " + urlStr + ": " + response.getTimings());
+            return new FeedResponse(data, hash.getValue(), etag, response.getHeader("Last-Modified"));
+        }
+    }
+
+    /**
+     * Download of one mirror, it records its outcome to mirror scorer except of success which needs general.update of the data.
+     * Cancelling disconnects the connection, so a blocked read fails at once.
+     */
+    class Fetch implements Callable<Fetch> {
+        private final String url;
+        private final long started = System.currentTimeMillis();
+        private volatile HttpURLConnection connection;
+        private volatile boolean cancelled;
+        private volatile boolean finished;
+        private FeedResponse response;
+        private long elapsed;
+
+        private Fetch(final String url) {
+            this.url = url;
+        }
+
+        String getUrl() {
+            return url;
+        }
+
+        /**
+         * Returns null when data of the mirror is not modified since its last accepted response.
+         */
+        FeedResponse getResponse() {
+            return response;
+        }
+
+        long getElapsed() {
+            return elapsed;
+        }
+
+        @Override
+        public Fetch call() throws IOException {
+            try {
+                response = downloadIfModified(this);
+                elapsed = elapsed();
+                if (response == null) {
+                    mirrors.notModified(url, elapsed);
+                }
+                return this;
+            } catch (final IOException e) {
+                if (!cancelled) {
+                    mirrors.failure(url, elapsed());
+                }
+                throw e;
+            } finally {
+                finished = true;
+            }
+        }
+
+        private long elapsed() {
+            return System.currentTimeMillis() - started;
+        }
+
+        private synchronized void attach(final HttpURLConnection connection) throws IOException {
+            if (cancelled) {
+                throw new InterruptedIOException("download from " + url + " is cancelled");
+            }
+            this.connection = connection;
+        }
+
+        /**
+         * Returns true if the fetch was still running.
+         */
+        private synchronized boolean cancel() {
+            if (finished) {
+                return false;
+            }
+            cancelled = true;
+            if (connection != null) {
+                connection.disconnect();
+            }
+            return true;
+        }
+
+        private boolean isFresherThan(final Fetch other) {
+            if (response == null) {
+                return false;
+            }
+            if (other.response == null) {
+                return true;
+            }
+            try {
+                final String update = response.readUpdate();
+                final String otherUpdate = other.response.readUpdate();
+                return update != null && (otherUpdate == null || ReportUtils.isTimestampGreater(update, otherUpdate));
+            } catch (final Exception e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Downloaded data with its content hash, the data is decoded to text only when it is asked for.
+     */
+    static class FeedResponse {
+        private final byte[] data;
+        private final String hash;
+        private final String etag;
+        private final String lastModified;
+        private String text;
+
+        private FeedResponse(final byte[] data, final String hash, final String etag, final String lastModified) {
+            this.data = data;
+            this.hash = hash;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        String getData() {
+            if (text == null) {
+                text = new String(data, StandardCharsets.UTF_8);
+            }
+            return text;
+        }
+
+        int getSize() {
+            return data.length;
+        }
+
+        /**
+         * Content hash of the data, see {@link ReportJSONFile#contentHash(String)}.
+         */
+        String getHash() {
+            return hash;
+        }
+
+        /**
+         * Reads general.update from the beginning of the data without decoding all of it.
+         */
+        String readUpdate() throws IOException {
+            return ReportJSONFile.readUpdate(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+        }
+    }
+}
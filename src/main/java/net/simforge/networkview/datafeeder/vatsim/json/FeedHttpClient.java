@@ -0,0 +1,316 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.commons.io.IOHelper;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * HTTP client of the feed downloader, it handles redirects, timeouts and gzip decoding in one place.
+ * Connections are kept alive and pooled by HttpURLConnection: responses are read to the end and closed, and connections
+ * are never disconnected, so the next request to the same host reuses the connection with its TLS session and TCP window.
+ * <p>
+ * Phases of every request are timed. DNS lookup is done before connecting, the JVM caches the result for the connection.
+ * TLS handshake is timed by the socket factory. It provides no unconnected sockets, so HttpsURLConnection connects a plain socket
+ * and asks the factory to layer TLS over it, the handshake follows right away.
+ */
+class FeedHttpClient {
+    private static final int MAX_REDIRECTS = 5;
+    private static final int MAX_DRAINED_BYTES = 65536;
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final TimingSocketFactory socketFactory;
+
+    FeedHttpClient(final int connectTimeoutMillis, final int readTimeoutMillis) {
+        this(connectTimeoutMillis, readTimeoutMillis, HttpsURLConnection.getDefaultSSLSocketFactory());
+    }
+
+    FeedHttpClient(final int connectTimeoutMillis, final int readTimeoutMillis, final SSLSocketFactory sslSocketFactory) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        // one factory instance for all requests, pooled connections are reused only with the same factory
+        this.socketFactory = new TimingSocketFactory(sslSocketFactory);
+    }
+
+    /**
+     * Sends GET request following redirects. The returned response has its body not read yet, it should be closed in any case.
+     * Statuses 4xx and 5xx are thrown as IOException.
+     */
+    Response get(final String url, final Map<String, String> headers, final ConnectionListener listener) throws IOException {
+        final Timings timings = new Timings();
+        URL current = new URL(url);
+        for (int redirects = 0; ; redirects++) {
+            final HttpURLConnection connection = open(current, headers, timings);
+            if (listener != null) {
+                listener.connecting(connection);
+            }
+
+            final long started = System.nanoTime();
+            socketFactory.handshakeStarted.remove();
+            connection.connect();
+            final long connected = System.nanoTime();
+            final Long handshakeStarted = socketFactory.handshakeStarted.get();
+            socketFactory.handshakeStarted.remove();
+            if (handshakeStarted != null) {
+                timings.connectNanos += handshakeStarted - started;
+                timings.tlsNanos += connected - handshakeStarted;
+                timings.handshakes++;
+            } else {
+                timings.connectNanos += connected - started;
+            }
+
+            final int status = connection.getResponseCode();
+            timings.firstByteNanos += System.nanoTime() - connected;
+
+            if (isRedirect(status) && redirects < MAX_REDIRECTS) {
+                final String location = connection.getHeaderField("Location");
+                discard(connection);
+                if (location == null) {
+                    throw new IOException("redirect without location from " + current);
+                }
+                current = new URL(current, location);
+                continue;
+            }
+
+            if (status >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                discard(connection);
+                throw new IOException("HTTP " + status + " from " + current);
+            }
+
+            return new Response(connection, timings);
+        }
+    }
+
+    private HttpURLConnection open(final URL url, final Map<String, String> headers, final Timings timings) throws IOException {
+        final long started = System.nanoTime();
+        InetAddress.getAllByName(url.getHost());
+        timings.dnsNanos += System.nanoTime() - started;
+
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        if (connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(socketFactory);
+        }
+        connection.setInstanceFollowRedirects(false); // redirects between http and https are not followed by HttpURLConnection
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setRequestProperty("Accept-Encoding", "gzip");
+        for (final Map.Entry<String, String> header : headers.entrySet()) {
+            connection.setRequestProperty(header.getKey(), header.getValue());
+        }
+        return connection;
+    }
+
+    private static boolean isRedirect(final int status) {
+        return status == HttpURLConnection.HTTP_MOVED_PERM
+                || status == HttpURLConnection.HTTP_MOVED_TEMP
+                || status == HttpURLConnection.HTTP_SEE_OTHER
+                || status == 307
+                || status == 308;
+    }
+
+    /**
+     * Reads a small rest of the body and closes the response stream, so the connection returns to the pool before the next request.
+     * Larger bodies are not read, the connection is closed then.
+     */
+    private static void discard(final HttpURLConnection connection) {
+        try {
+            final InputStream in = connection.getResponseCode() >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? connection.getErrorStream()
+                    : connection.getInputStream();
+            if (in == null) {
+                return;
+            }
+            try (final InputStream body = in) {
+                final byte[] buffer = new byte[8192];
+                int drained = 0;
+                int n;
+                while (drained < MAX_DRAINED_BYTES && (n = body.read(buffer)) != -1) {
+                    drained += n;
+                }
+            }
+        } catch (final IOException e) {
+            // the connection is not reused then
+        }
+    }
+
+    interface ConnectionListener {
+        /**
+         * Called before connecting, the connection may be disconnected from another thread to cancel the request.
+         */
+        void connecting(HttpURLConnection connection) throws IOException;
+    }
+
+    static class Response implements Closeable {
+        private final HttpURLConnection connection;
+        private final Timings timings;
+        private final long started = System.nanoTime();
+        private boolean closed;
+
+        private Response(final HttpURLConnection connection, final Timings timings) {
+            this.connection = connection;
+            this.timings = timings;
+        }
+
+        int getStatus() throws IOException {
+            return connection.getResponseCode();
+        }
+
+        String getHeader(final String name) {
+            return connection.getHeaderField(name);
+        }
+
+        String getUrl() {
+            return connection.getURL().toString();
+        }
+
+        Timings getTimings() {
+            return timings;
+        }
+
+        /**
+         * Reads the body decoding gzip content encoding, the response is closed then.
+         */
+        String readText() throws IOException {
+            try (final InputStream body = openBody()) {
+                return IOHelper.readInputStream(body);
+            } finally {
+                closed = true;
+                timings.bodyNanos += System.nanoTime() - started;
+            }
+        }
+
+        /**
+         * Reads the body decoding gzip content encoding and passing read bytes to the content hash, the response is closed then.
+         */
+        byte[] readBytes(final ContentHash hash) throws IOException {
+            try (final InputStream body = openBody()) {
+                final ByteArrayOutputStream data = new ByteArrayOutputStream(65536);
+                final byte[] buffer = new byte[65536];
+                int n;
+                while ((n = body.read(buffer)) != -1) {
+                    data.write(buffer, 0, n);
+                    hash.update(buffer, 0, n);
+                }
+                return data.toByteArray();
+            } finally {
+                closed = true;
+                timings.bodyNanos += System.nanoTime() - started;
+            }
+        }
+
+        private InputStream openBody() throws IOException {
+            final InputStream in = connection.getInputStream();
+            return "gzip".equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(in, 65536) : in;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                discard(connection);
+            }
+        }
+    }
+
+    /**
+     * Phase durations of the request summed over its redirects. Requests over a pooled connection have no connect and TLS time.
+     */
+    static class Timings {
+        private long dnsNanos;
+        private long connectNanos;
+        private long tlsNanos;
+        private long firstByteNanos;
+        private long bodyNanos;
+        private int handshakes;
+
+        long getDnsMillis() {
+            return dnsNanos / 1000000;
+        }
+
+        long getConnectMillis() {
+            return connectNanos / 1000000;
+        }
+
+        long getTlsMillis() {
+            return tlsNanos / 1000000;
+        }
+
+        long getFirstByteMillis() {
+            return firstByteNanos / 1000000;
+        }
+
+        long getBodyMillis() {
+            return bodyNanos / 1000000;
+        }
+
+        int getHandshakes() {
+            return handshakes;
+        }
+
+        @Override
+        public String toString() {
+            return "dns " + getDnsMillis() + " ms, connect " + getConnectMillis() + " ms, tls " + getTlsMillis() + " ms (" + handshakes + " handshakes)"
+                    + ", first byte " + getFirstByteMillis() + " ms, body " + getBodyMillis() + " ms";
+        }
+    }
+
+    /**
+     * Delegates to the SSL socket factory noting when TLS is layered over a connected socket. Unconnected sockets are
+     * not supported as by default SocketFactory, so HttpsURLConnection always layers TLS this way.
+     */
+    private static class TimingSocketFactory extends SSLSocketFactory {
+        private final SSLSocketFactory delegate;
+        private final ThreadLocal<Long> handshakeStarted = new ThreadLocal<>();
+
+        private TimingSocketFactory(final SSLSocketFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Socket createSocket(final Socket socket, final String host, final int port, final boolean autoClose) throws IOException {
+            handshakeStarted.set(System.nanoTime());
+            return delegate.createSocket(socket, host, port, autoClose);
+        }
+
+        @Override
+        public String[] getDefaultCipherSuites() {
+            return delegate.getDefaultCipherSuites();
+        }
+
+        @Override
+        public String[] getSupportedCipherSuites() {
+            return delegate.getSupportedCipherSuites();
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final String host, final int port, final InetAddress localHost, final int localPort) throws IOException {
+            return delegate.createSocket(host, port, localHost, localPort);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress host, final int port) throws IOException {
+            return delegate.createSocket(host, port);
+        }
+
+        @Override
+        public Socket createSocket(final InetAddress address, final int port, final InetAddress localAddress, final int localPort) throws IOException {
+            return delegate.createSocket(address, port, localAddress, localPort);
+        }
+    }
+}
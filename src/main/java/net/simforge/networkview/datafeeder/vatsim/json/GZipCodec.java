@@ -0,0 +1,37 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.commons.io.IOHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class GZipCodec implements ReportCodec {
+    public static final String EXTENSION = ".json.gz";
+
+    @Override
+    public String getExtension() {
+        return EXTENSION;
+    }
+
+    @Override
+    public byte[] encode(final byte[] data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 8);
+        try (final GZIPOutputStream gos = new GZIPOutputStream(out, 65536)) {
+            gos.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] decode(final byte[] data) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 8);
+        try (final InputStream in = new GZIPInputStream(new ByteArrayInputStream(data), 65536)) {
+            IOHelper.copyStream(in, out);
+        }
+        return out.toByteArray();
+    }
+}
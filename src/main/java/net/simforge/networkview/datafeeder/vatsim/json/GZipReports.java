@@ -1,6 +1,5 @@
 package net.simforge.networkview.datafeeder.vatsim.json;
 
-import net.simforge.commons.io.IOHelper;
 import net.simforge.commons.io.Marker;
 import net.simforge.commons.legacy.BM;
 import net.simforge.commons.legacy.misc.Settings;
@@ -11,13 +10,11 @@ import net.simforge.networkview.core.report.ReportUtils;
 import net.simforge.networkview.datafeeder.SettingNames;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
-import java.util.zip.GZIPOutputStream;
 
 public class GZipReports extends BaseTask {
 
@@ -28,8 +25,12 @@ public class GZipReports extends BaseTask {
     private final boolean singleRun;
 
     private final ReportJSONStorage storage;
+    private final ReportCodec codec;
     private final Marker compactifiedMarker = new Marker("SaveCmp-VATSIM-JSON");
 
+    // compressed and archived reports stay in the storage, so the task walks forward from the last checked report
+    private String lastCheckedReport;
+
     public GZipReports(final Properties properties) {
         super("GZipRep-VATSIM-JSON");
 
@@ -37,6 +38,7 @@ public class GZipReports extends BaseTask {
         this.singleRun = Boolean.parseBoolean(properties.getProperty(ARG_SINGLE, "false"));
 
         this.storage = ReportJSONStorage.getStorage(storageRoot, network);
+        this.codec = storage.getCodec();
 
         setBaseSleepTime(600000);
     }
@@ -51,6 +53,8 @@ public class GZipReports extends BaseTask {
 
         logger.info("Network     : " + network);
         logger.info("Storage root: " + storageRoot);
+        logger.info("Layout      : " + storage.getLayout());
+        logger.info("Codec       : " + codec.getExtension());
         logger.info("Single run  : " + singleRun);
     }
 
@@ -61,11 +65,14 @@ public class GZipReports extends BaseTask {
 
     @Override
     protected void process() {
+        if (storage.getLayout() == ReportJSONStorage.Layout.DELTAS) {
+            return; // deltas are compressed already and keyframes are referred by them, so nothing is gzipped
+        }
+
         BM.start("process");
         try {
 
-            final String report = storage.getFirstReport();
-            if (report == null) {
+            if (storage.getFirstReport() == null) {
                 logger.warn("No report found");
                 return;
             }
@@ -76,28 +83,30 @@ public class GZipReports extends BaseTask {
                 return;
             }
 
-            final LocalDateTime reportDt = ReportUtils.fromTimestampJava(report);
-            final LocalDateTime lastCompactifiedReportDt = ReportUtils.fromTimestampJava(lastCompactifiedReport);
+            if (storage.getLayout() == ReportJSONStorage.Layout.SEGMENTS) {
+                sealSegment(lastCompactifiedReport);
+                return;
+            }
 
+            final LocalDateTime lastCompactifiedReportDt = ReportUtils.fromTimestampJava(lastCompactifiedReport);
             final LocalDateTime thresholdDt = lastCompactifiedReportDt.minusHours(1);
-            if (reportDt.isAfter(thresholdDt)) {
+
+            final String report = findNextPlainReport(thresholdDt);
+            if (report == null) {
                 return;
             }
 
             final File reportFile = storage.getReportFile(report);
-            final File gzippedReportFile = new File(reportFile.getParentFile(), report + ".json.gz");
+            final File compressedReportFile = storage.getReportFile(report, codec);
 
-            try (final FileInputStream fis = new FileInputStream(reportFile);
-                 final FileOutputStream fos = new FileOutputStream(gzippedReportFile);
-                 final GZIPOutputStream gos = new GZIPOutputStream(fos)) {
-                IOHelper.copyStream(fis, gos);
-            }
+            Files.write(compressedReportFile.toPath(), codec.encode(Files.readAllBytes(reportFile.toPath())));
 
-            if (!reportFile.delete()) {
+            if (!reportFile.delete()) { // the report stays in the storage index as compressed one
                 throw new IOException("unable to delete report file " + reportFile);
             }
+            lastCheckedReport = report;
 
-            logger.info(ReportUtils.log(report) + " -       Report file gzipped");
+            logger.info(ReportUtils.log(report) + " -       Report file compressed");
 
             setNextSleepTime(100L); // small interval to catch up all remaining reports
 
@@ -108,4 +117,29 @@ public class GZipReports extends BaseTask {
             BM.stop();
         }
     }
+
+    private String findNextPlainReport(final LocalDateTime thresholdDt) throws IOException {
+        String report = lastCheckedReport != null ? storage.getNextReport(lastCheckedReport) : storage.getFirstReport();
+        while (report != null && !ReportUtils.fromTimestampJava(report).isAfter(thresholdDt)) {
+            if (storage.getReportFile(report).exists()) {
+                return report;
+            }
+            lastCheckedReport = report;
+            report = storage.getNextReport(report);
+        }
+        return null;
+    }
+
+    private void sealSegment(final String lastCompactifiedReport) throws IOException {
+        final LocalDateTime thresholdDt = ReportUtils.fromTimestampJava(lastCompactifiedReport).minusHours(1);
+
+        final String hour = storage.sealNextSegment(thresholdDt);
+        if (hour == null) {
+            return;
+        }
+
+        logger.info("Segment {} - Sealed", hour);
+
+        setNextSleepTime(100L); // small interval to catch up all remaining segments
+    }
 }
@@ -0,0 +1,140 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.report.ReportUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Scores data feed mirrors by response time, failure rate and freshness of general.update they serve.
+ * Statistics are moving averages, so a mirror recovers its score once it becomes fast and fresh again.
+ * The best mirror is selected most of the time, others are probed now and then to keep their statistics actual.
+ */
+class MirrorScorer {
+    static final double DEFAULT_PROBE_RATE = 0.1;
+
+    private static final double ALPHA = 0.3;
+    // time lost by Download on retry after failed or stale response
+    private static final double FAILURE_COST_MILLIS = 2000;
+    private static final double STALENESS_COST_MILLIS = 10000;
+
+    private final Random random;
+    private final double probeRate;
+    private final Map<String, Stats> mirrors = new HashMap<>();
+    private String freshestUpdate;
+
+    MirrorScorer() {
+        this(new Random(), DEFAULT_PROBE_RATE);
+    }
+
+    MirrorScorer(final Random random, final double probeRate) {
+        this.random = random;
+        this.probeRate = probeRate;
+    }
+
+    /**
+     * Selects a mirror of the candidates, mirrors without statistics go first.
+     */
+    synchronized String select(final List<String> candidates) {
+        if (candidates.isEmpty()) {
+            throw new IllegalArgumentException("no mirrors to select from");
+        }
+
+        final List<String> untried = new ArrayList<>();
+        for (final String url : candidates) {
+            if (!mirrors.containsKey(url)) {
+                untried.add(url);
+            }
+        }
+        if (!untried.isEmpty()) {
+            return untried.get(random.nextInt(untried.size()));
+        }
+
+        if (candidates.size() > 1 && random.nextDouble() < probeRate) {
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+
+        String best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (final String url : candidates) {
+            final double score = mirrors.get(url).score();
+            if (score < bestScore) {
+                best = url;
+                bestScore = score;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Records successful download of the report with given update.
+     */
+    synchronized void success(final String url, final long millis, final String update) {
+        final boolean stale = freshestUpdate != null && ReportUtils.isTimestampGreater(freshestUpdate, update);
+        if (freshestUpdate == null || ReportUtils.isTimestampGreater(update, freshestUpdate)) {
+            freshestUpdate = update;
+        }
+        stats(url).update(millis, false, stale);
+    }
+
+    /**
+     * Records response without new data, the mirror has nothing newer than its previous response.
+     */
+    synchronized void notModified(final String url, final long millis) {
+        stats(url).update(millis, false, false);
+    }
+
+    synchronized void failure(final String url, final long millis) {
+        stats(url).update(millis, true, false);
+    }
+
+    @Override
+    public synchronized String toString() {
+        final StringBuilder sb = new StringBuilder();
+        for (final Map.Entry<String, Stats> entry : mirrors.entrySet()) {
+            final Stats stats = entry.getValue();
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(entry.getKey()).append(String.format(" %.0f ms, %.0f%% failed, %.0f%% stale",
+                    stats.millis, stats.failureRate * 100, stats.staleRate * 100));
+        }
+        return sb.toString();
+    }
+
+    private Stats stats(final String url) {
+        return mirrors.computeIfAbsent(url, k -> new Stats());
+    }
+
+    private static class Stats {
+        private boolean initialized;
+        private double millis;
+        private double failureRate;
+        private double staleRate;
+
+        private void update(final long millis, final boolean failed, final boolean stale) {
+            if (!initialized) {
+                this.millis = millis;
+                this.failureRate = failed ? 1 : 0;
+                this.staleRate = stale ? 1 : 0;
+                initialized = true;
+                return;
+            }
+            if (!failed || millis > this.millis) { // fast failure does not make the mirror look fast
+                this.millis += ALPHA * (millis - this.millis);
+            }
+            this.failureRate += ALPHA * ((failed ? 1 : 0) - failureRate);
+            this.staleRate += ALPHA * ((stale ? 1 : 0) - staleRate);
+        }
+
+        /**
+         * Expected time to get fresh data, failures and stale responses cost retries.
+         */
+        private double score() {
+            return millis + FAILURE_COST_MILLIS * failureRate + STALENESS_COST_MILLIS * staleRate;
+        }
+    }
+}
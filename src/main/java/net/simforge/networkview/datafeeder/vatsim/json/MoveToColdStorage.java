@@ -0,0 +1,86 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.commons.legacy.BM;
+import net.simforge.commons.legacy.misc.Settings;
+import net.simforge.commons.misc.JavaTime;
+import net.simforge.commons.runtime.BaseTask;
+import net.simforge.commons.runtime.RunningMarker;
+import net.simforge.networkview.core.Network;
+import net.simforge.networkview.datafeeder.SettingNames;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves days older than keep-days from the hot storage root to the cold one, see {@link SettingNames#storageColdRoot}.
+ * A day is moved once all its reports are compressed or archived, recent reports stay on the hot root for download and compaction.
+ */
+public class MoveToColdStorage extends BaseTask {
+
+    private static final String ARG_KEEP_DAYS = "keep-days";
+
+    private final Network network = Network.VATSIM;
+    private final String storageRoot;
+    private final int keepDays;
+
+    private final ReportJSONStorage storage;
+
+    public MoveToColdStorage(final Properties properties) {
+        super("MoveCold-VATSIM-JSON");
+
+        this.storageRoot = Settings.get(SettingNames.storageRoot) != null ? Settings.get(SettingNames.storageRoot) : ReportJSONStorage.DEFAULT_STORAGE_ROOT;
+        this.keepDays = Math.max(Integer.parseInt(properties.getProperty(ARG_KEEP_DAYS, "2")), 1);
+
+        this.storage = ReportJSONStorage.getStorage(storageRoot, network);
+
+        setBaseSleepTime(3600000);
+    }
+
+    @Override
+    protected void startup() {
+        super.startup();
+
+        BM.setLoggingPeriod(TimeUnit.HOURS.toMillis(1));
+
+        RunningMarker.lock(getTaskName());
+
+        logger.info("Network     : " + network);
+        logger.info("Storage root: " + storageRoot);
+        logger.info("Cold root   : " + storage.getColdRoot());
+        logger.info("Keep days   : " + keepDays);
+    }
+
+    @Override
+    protected void shutdown() {
+        super.shutdown();
+    }
+
+    @Override
+    protected void process() {
+        if (storage.getColdRoot() == null) {
+            logger.warn("No cold root configured");
+            return;
+        }
+
+        BM.start("process");
+        try {
+            final LocalDate threshold = JavaTime.nowUtc().toLocalDate().minusDays(keepDays);
+
+            final String date = storage.moveNextDayToCold(threshold);
+            if (date == null) {
+                return;
+            }
+
+            logger.info("Date folder {} - Moved to cold root", date);
+
+            setNextSleepTime(100L); // small interval to catch up all remaining days
+        } catch (final IOException e) {
+            logger.error("I/O exception happened", e);
+            throw new RuntimeException("I/O exception happened", e);
+        } finally {
+            BM.stop();
+        }
+    }
+}
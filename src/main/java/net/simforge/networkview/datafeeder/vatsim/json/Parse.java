@@ -32,6 +32,8 @@ public class Parse extends BaseTask {
     private static final String ARG_SINGLE = "single";
     private static final String ARG_STORAGE = "storage";
 
+    private static final long ARRIVAL_WAIT_MILLIS = 5000;
+
     private Network network;
     private String storageRoot = ReportJSONStorage.DEFAULT_STORAGE_ROOT;
     private ReportJSONStorage storage;
@@ -83,6 +85,11 @@ public class Parse extends BaseTask {
 
 
         storage = ReportJSONStorage.getStorage(storageRoot, network);
+        try {
+            storage.startWatching();
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to watch storage " + storageRoot, e);
+        }
         marker = new Marker(getTaskName());
         reportSessionManager = DatafeederTasks.getSessionManager();
 
@@ -110,7 +117,10 @@ public class Parse extends BaseTask {
                     logger.info("Still no first report found");
                 }
             } else {
-                nextReport = storage.getNextReport(lastProcessedReport);
+                nextReport = storage.awaitNextReport(lastProcessedReport, ARRIVAL_WAIT_MILLIS);
+                if (nextReport == null) {
+                    setNextSleepTime(100L); // waiting for the next report is done in awaitNextReport
+                }
             }
 
             if (nextReport == null) {
@@ -130,6 +140,8 @@ public class Parse extends BaseTask {
                 setNextSleepTime(300000L); // 5 mins after exception
             }
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (IOException e) {
             logger.error("I/O exception happened", e);
             throw new RuntimeException("I/O exception happened", e);
@@ -145,7 +157,7 @@ public class Parse extends BaseTask {
 
             logger.debug(ReportUtils.log(report) + " - Parsing started...");
 
-            ReportJSONFile reportFile = storage.loadReport(report);
+            ReportJSONFile reportFile = storage.loadReport(report, ReportJSONFile.ParseOptions.DEFAULT.withLog(true));
             logger.debug(ReportUtils.log(report) + " -       Data splitted");
 
             List<ReportJSONFile.ClientInfo> pilotInfos = reportFile.getPilotInfos();
@@ -0,0 +1,241 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented view of the pilots of one report. Every pilot is an index in the range [0, size()),
+ * numeric values are kept in primitive arrays and string values are dictionary-encoded per column.
+ */
+public class PilotBatch {
+    private final int size;
+
+    private final int[] cid;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final int[] altitude;
+    private final int[] groundspeed;
+    private final int[] heading;
+    private final int[] qnhMb;
+
+    private final StringColumn callsigns;
+    private final StringColumn plannedAircrafts;
+    private final StringColumn plannedDepAirports;
+    private final StringColumn plannedDestAirports;
+    private final StringColumn plannedRemarks;
+
+    private PilotBatch(Builder builder) {
+        this.size = builder.size;
+        this.cid = builder.cid;
+        this.latitude = builder.latitude;
+        this.longitude = builder.longitude;
+        this.altitude = builder.altitude;
+        this.groundspeed = builder.groundspeed;
+        this.heading = builder.heading;
+        this.qnhMb = builder.qnhMb;
+        this.callsigns = builder.callsigns.build();
+        this.plannedAircrafts = builder.plannedAircrafts.build();
+        this.plannedDepAirports = builder.plannedDepAirports.build();
+        this.plannedDestAirports = builder.plannedDestAirports.build();
+        this.plannedRemarks = builder.plannedRemarks.build();
+    }
+
+    public static PilotBatch of(List<ReportJSONFile.ClientInfo> pilotInfos) {
+        Builder builder = new Builder(pilotInfos.size());
+        pilotInfos.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCid(int index) {
+        return cid[checkIndex(index)];
+    }
+
+    public double getLatitude(int index) {
+        return latitude[checkIndex(index)];
+    }
+
+    public double getLongitude(int index) {
+        return longitude[checkIndex(index)];
+    }
+
+    public int getAltitude(int index) {
+        return altitude[checkIndex(index)];
+    }
+
+    public int getGroundspeed(int index) {
+        return groundspeed[checkIndex(index)];
+    }
+
+    public int getHeading(int index) {
+        return heading[checkIndex(index)];
+    }
+
+    public int getQnhMb(int index) {
+        return qnhMb[checkIndex(index)];
+    }
+
+    public StringColumn getCallsigns() {
+        return callsigns;
+    }
+
+    public StringColumn getPlannedAircrafts() {
+        return plannedAircrafts;
+    }
+
+    public StringColumn getPlannedDepAirports() {
+        return plannedDepAirports;
+    }
+
+    public StringColumn getPlannedDestAirports() {
+        return plannedDestAirports;
+    }
+
+    public StringColumn getPlannedRemarks() {
+        return plannedRemarks;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return index;
+    }
+
+    /**
+     * Dictionary-encoded string column, null values are encoded as {@link #NULL_CODE}.
+     */
+    public static class StringColumn {
+        public static final int NULL_CODE = -1;
+
+        private final int size;
+        private final int[] codes;
+        private final String[] dictionary;
+
+        private StringColumn(int size, int[] codes, String[] dictionary) {
+            this.size = size;
+            this.codes = codes;
+            this.dictionary = dictionary;
+        }
+
+        public String get(int index) {
+            int code = getCode(index);
+            return code != NULL_CODE ? dictionary[code] : null;
+        }
+
+        public int getCode(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return codes[index];
+        }
+
+        public int getDictionarySize() {
+            return dictionary.length;
+        }
+
+        public String decode(int code) {
+            return code != NULL_CODE ? dictionary[code] : null;
+        }
+    }
+
+    static class Builder {
+        private int size;
+
+        private int[] cid;
+        private double[] latitude;
+        private double[] longitude;
+        private int[] altitude;
+        private int[] groundspeed;
+        private int[] heading;
+        private int[] qnhMb;
+
+        private final StringColumnBuilder callsigns = new StringColumnBuilder();
+        private final StringColumnBuilder plannedAircrafts = new StringColumnBuilder();
+        private final StringColumnBuilder plannedDepAirports = new StringColumnBuilder();
+        private final StringColumnBuilder plannedDestAirports = new StringColumnBuilder();
+        private final StringColumnBuilder plannedRemarks = new StringColumnBuilder();
+
+        Builder() {
+            this(1024);
+        }
+
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 16);
+            cid = new int[capacity];
+            latitude = new double[capacity];
+            longitude = new double[capacity];
+            altitude = new int[capacity];
+            groundspeed = new int[capacity];
+            heading = new int[capacity];
+            qnhMb = new int[capacity];
+        }
+
+        void add(ReportJSONFile.ClientInfo pilotInfo) {
+            if (size == cid.length) {
+                int capacity = size * 2;
+                cid = Arrays.copyOf(cid, capacity);
+                latitude = Arrays.copyOf(latitude, capacity);
+                longitude = Arrays.copyOf(longitude, capacity);
+                altitude = Arrays.copyOf(altitude, capacity);
+                groundspeed = Arrays.copyOf(groundspeed, capacity);
+                heading = Arrays.copyOf(heading, capacity);
+                qnhMb = Arrays.copyOf(qnhMb, capacity);
+            }
+
+            cid[size] = pilotInfo.getCid();
+            latitude[size] = pilotInfo.getLatitude();
+            longitude[size] = pilotInfo.getLongitude();
+            altitude[size] = pilotInfo.getAltitude();
+            groundspeed[size] = pilotInfo.getGroundspeed();
+            heading[size] = pilotInfo.getHeading();
+            qnhMb[size] = pilotInfo.getQnhMb() != null ? pilotInfo.getQnhMb() : 0;
+
+            callsigns.add(pilotInfo.getCallsign());
+            plannedAircrafts.add(pilotInfo.getPlannedAircraft());
+            plannedDepAirports.add(pilotInfo.getPlannedDepAirport());
+            plannedDestAirports.add(pilotInfo.getPlannedDestAirport());
+            plannedRemarks.add(pilotInfo.getPlannedRemarks());
+
+            size++;
+        }
+
+        PilotBatch build() {
+            return new PilotBatch(this);
+        }
+    }
+
+    private static class StringColumnBuilder {
+        private int size;
+        private int[] codes = new int[1024];
+        private final Map<String, Integer> codeByValue = new HashMap<>();
+
+        private void add(String value) {
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+
+            int code = StringColumn.NULL_CODE;
+            if (value != null) {
+                Integer existingCode = codeByValue.get(value);
+                if (existingCode == null) {
+                    existingCode = codeByValue.size();
+                    codeByValue.put(value, existingCode);
+                }
+                code = existingCode;
+            }
+            codes[size++] = code;
+        }
+
+        private StringColumn build() {
+            String[] dictionary = new String[codeByValue.size()];
+            codeByValue.forEach((value, code) -> dictionary[code] = value);
+            return new StringColumn(size, codes, dictionary);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Reads reports of daily yyyy-MM-dd.zip archives made by {@link DailyArchive}, archive entries are compressed report files.
+ * Recently used archives are kept open with their central directory indexed by report, so a report is read by seeking to its entry directly.
+ * An archive is reopened when its file is modified.
+ */
+class ReportArchives {
+    static final String ARCHIVE_EXTENSION = ".zip";
+
+    private static final int MAX_OPEN_ARCHIVES = 8;
+
+    private final List<ReportCodec> codecs;
+    private final Map<File, Archive> archives = new LinkedHashMap<>(16, 0.75f, true);
+
+    ReportArchives(final List<ReportCodec> codecs) {
+        this.codecs = codecs;
+    }
+
+    /**
+     * Returns sorted reports of the archive, empty list if there is no archive.
+     */
+    List<String> listReports(final File archiveFile) throws IOException {
+        final Archive archive = getArchive(archiveFile);
+        return archive != null ? archive.reports : Collections.emptyList();
+    }
+
+    boolean contains(final File archiveFile, final String report) throws IOException {
+        final Archive archive = getArchive(archiveFile);
+        return archive != null && archive.entries.containsKey(report);
+    }
+
+    /**
+     * Returns uncompressed report data.
+     */
+    byte[] read(final File archiveFile, final String report) throws IOException {
+        final byte[] data;
+        final String entryName;
+        synchronized (this) {
+            // the entry is read while the archive can not be closed by eviction
+            final Archive archive = getArchive(archiveFile);
+            final ZipEntry entry = archive != null ? archive.entries.get(report) : null;
+            if (entry == null) {
+                throw new FileNotFoundException("report " + report + " not found in archive " + archiveFile);
+            }
+            try (final InputStream in = archive.zip.getInputStream(entry)) {
+                data = readAll(in, (int) entry.getSize());
+            }
+            entryName = entry.getName();
+        }
+
+        for (final ReportCodec codec : codecs) {
+            if (entryName.endsWith(codec.getExtension())) {
+                return codec.decode(data);
+            }
+        }
+        return data;
+    }
+
+    private synchronized Archive getArchive(final File archiveFile) throws IOException {
+        Archive archive = archives.get(archiveFile);
+        if (archive != null) {
+            if (archive.lastModified == archiveFile.lastModified() && archive.length == archiveFile.length()) {
+                return archive;
+            }
+            archives.remove(archiveFile);
+            archive.zip.close();
+        }
+
+        if (!archiveFile.isFile()) {
+            return null;
+        }
+
+        archive = new Archive(archiveFile);
+        archives.put(archiveFile, archive);
+
+        final Iterator<Archive> iterator = archives.values().iterator();
+        while (archives.size() > MAX_OPEN_ARCHIVES) {
+            iterator.next().zip.close();
+            iterator.remove();
+        }
+
+        return archive;
+    }
+
+    private static byte[] readAll(final InputStream in, final int size) throws IOException {
+        if (size >= 0) {
+            final byte[] data = new byte[size];
+            new DataInputStream(in).readFully(data);
+            return data;
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(65536);
+        final byte[] buffer = new byte[65536];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private static class Archive {
+        private final ZipFile zip;
+        private final long lastModified;
+        private final long length;
+        private final Map<String, ZipEntry> entries = new HashMap<>();
+        private final List<String> reports;
+
+        private Archive(final File file) throws IOException {
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.zip = new ZipFile(file);
+
+            final Enumeration<? extends ZipEntry> enumeration = zip.entries();
+            while (enumeration.hasMoreElements()) {
+                final ZipEntry entry = enumeration.nextElement();
+                final String report = ReportJSONStorage.toReport(entry.getName());
+                if (report != null) {
+                    entries.put(report, entry);
+                }
+            }
+
+            final List<String> reports = new ArrayList<>(entries.keySet());
+            Collections.sort(reports);
+            this.reports = Collections.unmodifiableList(reports);
+        }
+    }
+}
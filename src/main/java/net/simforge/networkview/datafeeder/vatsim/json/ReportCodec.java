@@ -0,0 +1,15 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.io.IOException;
+
+/**
+ * Compression of raw report files, the codec of a file is recognised by its extension.
+ */
+public interface ReportCodec {
+
+    String getExtension();
+
+    byte[] encode(byte[] data) throws IOException;
+
+    byte[] decode(byte[] data) throws IOException;
+}
@@ -0,0 +1,346 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Delta layout of raw reports. Every keyframe interval a report is saved as usual .json file, reports in between are saved
+ * as .delta files encoded against the last keyframe, so loading any report needs the keyframe and one delta only.
+ * <p>
+ * A delta splits the report at JSON token boundaries and encodes it as copies of keyframe ranges and inserted bytes,
+ * two feeds 15 seconds apart differ mostly in positions, so the most of a report is copied. The delta keeps length and CRC
+ * of the report, decoding restores the exact original bytes.
+ */
+class ReportDeltas {
+    static final String DELTA_EXTENSION = ".delta";
+
+    static final int DEFAULT_KEYFRAME_INTERVAL = 40;
+
+    private static final int MIN_ANCHOR_LENGTH = 12;
+    private static final int CACHED_KEYFRAMES = 4;
+
+    private final ReportJSONStorage storage;
+    private final int keyframeInterval;
+
+    // writer state, deltas are encoded against the last keyframe saved by this process
+    private Keyframe lastKeyframe;
+    private int deltasSinceKeyframe;
+
+    private final Map<String, byte[]> keyframes = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, byte[]> eldest) {
+            return size() > CACHED_KEYFRAMES;
+        }
+    };
+
+    ReportDeltas(final ReportJSONStorage storage, final int keyframeInterval) {
+        this.storage = storage;
+        this.keyframeInterval = keyframeInterval;
+    }
+
+    synchronized void append(final String report, final byte[] data) throws IOException {
+        final File reportFile = storage.getReportFile(report);
+        //noinspection ResultOfMethodCallIgnored
+        reportFile.getParentFile().mkdirs();
+
+        // keyframes do not cross days, so a date folder is self-contained
+        final boolean keyframeDue = lastKeyframe == null
+                || deltasSinceKeyframe + 1 >= keyframeInterval
+                || !toDate(lastKeyframe.report).equals(toDate(report));
+
+        if (!keyframeDue) {
+            final byte[] delta = encode(lastKeyframe, data);
+            if (delta.length < data.length / 2) {
+                Files.write(getDeltaFile(report).toPath(), delta);
+                deltasSinceKeyframe++;
+                return;
+            }
+        }
+
+        Files.write(reportFile.toPath(), data);
+        lastKeyframe = new Keyframe(report, data);
+        deltasSinceKeyframe = 0;
+        synchronized (keyframes) {
+            keyframes.put(report, data);
+        }
+    }
+
+    byte[] read(final String report) throws IOException {
+        final File reportFile = storage.locate(storage.getReportFile(report));
+        if (reportFile.exists()) {
+            return Files.readAllBytes(reportFile.toPath());
+        }
+
+        final byte[] delta = Files.readAllBytes(storage.locate(getDeltaFile(report)).toPath());
+        final String keyframe = readKeyframeReport(delta);
+        return decode(getKeyframe(keyframe), delta);
+    }
+
+    boolean exists(final String report) {
+        return storage.locate(storage.getReportFile(report)).exists() || storage.locate(getDeltaFile(report)).exists();
+    }
+
+    File getDeltaFile(final String report) {
+        final File reportFile = storage.getReportFile(report);
+        return new File(reportFile.getParentFile(), report + DELTA_EXTENSION);
+    }
+
+    private byte[] getKeyframe(final String keyframe) throws IOException {
+        synchronized (keyframes) {
+            final byte[] data = keyframes.get(keyframe);
+            if (data != null) {
+                return data;
+            }
+        }
+
+        final File file = storage.locate(storage.getReportFile(keyframe));
+        if (!file.exists()) {
+            throw new FileNotFoundException("keyframe " + keyframe + " not found");
+        }
+        final byte[] data = Files.readAllBytes(file.toPath());
+        synchronized (keyframes) {
+            keyframes.put(keyframe, data);
+        }
+        return data;
+    }
+
+    private static String toDate(final String report) {
+        return report.substring(0, "yyyyMMdd".length());
+    }
+
+    static byte[] encode(final String keyframeReport, final byte[] keyframe, final byte[] data) throws IOException {
+        return encode(new Keyframe(keyframeReport, keyframe), data);
+    }
+
+    private static byte[] encode(final Keyframe keyframe, final byte[] data) throws IOException {
+        final byte[] base = keyframe.data;
+        final ByteArrayOutputStream ops = new ByteArrayOutputStream(data.length / 8);
+
+        int copyStart = -1;
+        int copyLength = 0;
+        int lastCopyEnd = 0;
+        int insertStart = 0;
+        int insertLength = 0;
+
+        int basePosition = 0;
+        int position = 0;
+        while (position < data.length) {
+            final int end = nextBoundary(data, position);
+            final int length = end - position;
+
+            int match = -1;
+            if (basePosition < base.length && nextBoundary(base, basePosition) - basePosition == length && regionEquals(base, basePosition, data, position, length)) {
+                match = basePosition;
+            } else if (length >= MIN_ANCHOR_LENGTH) {
+                final Integer anchor = keyframe.anchors.get(hash(data, position, length));
+                if (anchor != null && nextBoundary(base, anchor) - anchor == length && regionEquals(base, anchor, data, position, length)) {
+                    match = anchor;
+                }
+            }
+
+            if (match != -1) {
+                if (insertLength > 0) {
+                    writeInsert(ops, data, insertStart, insertLength);
+                    insertLength = 0;
+                }
+                if (copyLength > 0 && copyStart + copyLength == match) {
+                    copyLength += length;
+                } else {
+                    if (copyLength > 0) {
+                        lastCopyEnd = writeCopy(ops, copyStart, copyLength, lastCopyEnd);
+                    }
+                    copyStart = match;
+                    copyLength = length;
+                }
+                basePosition = match + length;
+            } else {
+                if (copyLength > 0) {
+                    lastCopyEnd = writeCopy(ops, copyStart, copyLength, lastCopyEnd);
+                    copyLength = 0;
+                }
+                if (insertLength == 0) {
+                    insertStart = position;
+                }
+                insertLength += length;
+                if (basePosition < base.length) {
+                    basePosition = nextBoundary(base, basePosition); // the changed token most likely replaces the keyframe one
+                }
+            }
+
+            position = end;
+        }
+        if (copyLength > 0) {
+            writeCopy(ops, copyStart, copyLength, lastCopyEnd);
+        }
+        if (insertLength > 0) {
+            writeInsert(ops, data, insertStart, insertLength);
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream(ops.size() / 2 + 64);
+        final DataOutputStream out = new DataOutputStream(result);
+        out.writeUTF(keyframe.report);
+        out.writeInt(data.length);
+        out.writeLong(crc.getValue());
+        try (final DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), 65536)) {
+            ops.writeTo(deflater);
+        }
+        return result.toByteArray();
+    }
+
+    static String readKeyframeReport(final byte[] delta) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(delta)).readUTF();
+    }
+
+    static byte[] decode(final byte[] base, final byte[] delta) throws IOException {
+        final DataInputStream header = new DataInputStream(new ByteArrayInputStream(delta));
+        final String keyframeReport = header.readUTF();
+        final int length = header.readInt();
+        final long expectedCrc = header.readLong();
+        if (length < 0) {
+            throw new IOException("delta of keyframe " + keyframeReport + " is corrupted");
+        }
+
+        final byte[] data = new byte[length];
+        int position = 0;
+        int lastCopyEnd = 0;
+        try (final InputStream in = new BufferedInputStream(new InflaterInputStream(header, new Inflater(), 65536))) {
+            while (position < length) {
+                final long op = readVarLong(in);
+                final int opLength = (int) (op >>> 1);
+                if (opLength < 0 || opLength > length - position) {
+                    throw new IOException("delta of keyframe " + keyframeReport + " is corrupted");
+                }
+                if ((op & 1) == 0) {
+                    readFully(in, data, position, opLength);
+                } else {
+                    final long relative = readVarLong(in);
+                    final long offset = lastCopyEnd + ((relative >>> 1) ^ -(relative & 1));
+                    if (offset < 0 || offset > base.length - opLength) {
+                        throw new IOException("delta of keyframe " + keyframeReport + " is corrupted");
+                    }
+                    System.arraycopy(base, (int) offset, data, position, opLength);
+                    lastCopyEnd = (int) offset + opLength;
+                }
+                position += opLength;
+            }
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        if (crc.getValue() != expectedCrc) {
+            throw new IOException("delta of keyframe " + keyframeReport + " does not match its CRC");
+        }
+        return data;
+    }
+
+    private static void writeInsert(final ByteArrayOutputStream out, final byte[] data, final int start, final int length) {
+        writeVarLong(out, (long) length << 1);
+        out.write(data, start, length);
+    }
+
+    private static int writeCopy(final ByteArrayOutputStream out, final int start, final int length, final int lastCopyEnd) {
+        final long relative = start - lastCopyEnd;
+        writeVarLong(out, ((long) length << 1) | 1);
+        writeVarLong(out, (relative << 1) ^ (relative >> 63));
+        return start + length;
+    }
+
+    private static void writeVarLong(final ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(final InputStream in) throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = in.read();
+            if (b == -1) {
+                throw new EOFException("delta is truncated");
+            }
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("delta is corrupted");
+    }
+
+    private static void readFully(final InputStream in, final byte[] data, int position, int length) throws IOException {
+        while (length > 0) {
+            final int n = in.read(data, position, length);
+            if (n == -1) {
+                throw new EOFException("delta is truncated");
+            }
+            position += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Returns the end of the token starting at the position, tokens end after structural characters of JSON.
+     */
+    static int nextBoundary(final byte[] data, int position) {
+        while (position < data.length) {
+            final byte b = data[position++];
+            if (b == ',' || b == '{' || b == '}' || b == '[' || b == ']') {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private static boolean regionEquals(final byte[] a, final int aStart, final byte[] b, final int bStart, final int length) {
+        for (int i = 0; i < length; i++) {
+            if (a[aStart + i] != b[bStart + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(final byte[] data, final int start, final int length) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = start; i < start + length; i++) {
+            hash ^= data[i];
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Keyframe data with anchors, long tokens indexed by their hash to find where copying resumes after a change.
+     */
+    private static class Keyframe {
+        private final String report;
+        private final byte[] data;
+        private final Map<Long, Integer> anchors = new HashMap<>();
+
+        private Keyframe(final String report, final byte[] data) {
+            this.report = report;
+            this.data = data;
+
+            int position = 0;
+            while (position < data.length) {
+                final int end = nextBoundary(data, position);
+                if (end - position >= MIN_ANCHOR_LENGTH) {
+                    anchors.putIfAbsent(hash(data, position, end - position), position);
+                }
+                position = end;
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Versioned compression dictionaries of {@link DictionaryCodec}, kept as NNNN.dict files in the dictionaries folder of the storage.
+ * Dictionaries are never changed or deleted, a retrained dictionary gets the next version.
+ */
+class ReportDictionaries {
+    static final String FOLDER = "dictionaries";
+    static final int MAX_SIZE = 32768; // deflate window, longer dictionary is not used
+
+    private static final String EXTENSION = ".dict";
+    private static final int MIN_TOKEN_LENGTH = 4;
+    private static final int MAX_TOKEN_LENGTH = 512;
+
+    private final File folder;
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+
+    ReportDictionaries(final File folder) {
+        this.folder = folder;
+    }
+
+    File getFolder() {
+        return folder;
+    }
+
+    /**
+     * Returns the latest dictionary version, 0 if there is no dictionary yet.
+     */
+    int getCurrentVersion() {
+        final String[] names = folder.list();
+        int version = 0;
+        if (names != null) {
+            for (final String name : names) {
+                if (name.matches("\\d{4}\\" + EXTENSION)) {
+                    version = Math.max(version, Integer.parseInt(name.substring(0, 4)));
+                }
+            }
+        }
+        return version;
+    }
+
+    byte[] get(final int version) throws IOException {
+        if (version == 0) {
+            return new byte[0];
+        }
+
+        byte[] dictionary = dictionaries.get(version);
+        if (dictionary == null) {
+            final File file = getFile(version);
+            if (!file.exists()) {
+                throw new FileNotFoundException("dictionary version " + version + " not found");
+            }
+            dictionary = Files.readAllBytes(file.toPath());
+            dictionaries.put(version, dictionary);
+        }
+        return dictionary;
+    }
+
+    File getFile(final int version) {
+        return new File(folder, String.format("%04d", version) + EXTENSION);
+    }
+
+    /**
+     * Saves the dictionary as the next version and returns the version.
+     */
+    synchronized int save(final byte[] dictionary) throws IOException {
+        //noinspection ResultOfMethodCallIgnored
+        folder.mkdirs();
+
+        final int version = getCurrentVersion() + 1;
+        final File tempFile = new File(folder, System.currentTimeMillis() + ".tmp");
+        Files.write(tempFile.toPath(), dictionary);
+        Files.move(tempFile.toPath(), getFile(version).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        dictionaries.put(version, dictionary);
+        return version;
+    }
+
+    /**
+     * Builds a dictionary of JSON tokens repeated in most of the samples, like field names and values of flight plans.
+     * Tokens saving more bytes are placed at the end of the dictionary, as deflate encodes shorter distances cheaper.
+     */
+    static byte[] train(final List<byte[]> samples, final int size) {
+        final Map<String, int[]> tokens = new HashMap<>(); // token -> [samples containing it, occurrences]
+        for (final byte[] sample : samples) {
+            final Set<String> sampleTokens = new HashSet<>();
+            int position = 0;
+            while (position < sample.length) {
+                final int end = ReportDeltas.nextBoundary(sample, position);
+                final int length = end - position;
+                if (length >= MIN_TOKEN_LENGTH && length <= MAX_TOKEN_LENGTH) {
+                    final String token = new String(sample, position, length, StandardCharsets.ISO_8859_1);
+                    final int[] counts = tokens.computeIfAbsent(token, t -> new int[2]);
+                    if (sampleTokens.add(token)) {
+                        counts[0]++;
+                    }
+                    counts[1]++;
+                }
+                position = end;
+            }
+        }
+
+        final int minSamples = Math.max(2, samples.size() / 2);
+        final List<Map.Entry<String, int[]>> candidates = new ArrayList<>();
+        for (final Map.Entry<String, int[]> entry : tokens.entrySet()) {
+            if (entry.getValue()[0] >= minSamples) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(score(b), score(a)));
+
+        final List<String> selected = new ArrayList<>();
+        int total = 0;
+        for (final Map.Entry<String, int[]> candidate : candidates) {
+            final int length = candidate.getKey().length();
+            if (total + length > size) {
+                continue;
+            }
+            selected.add(candidate.getKey());
+            total += length;
+        }
+
+        final byte[] dictionary = new byte[total];
+        int position = total;
+        for (final String token : selected) {
+            position -= token.length();
+            for (int i = 0; i < token.length(); i++) {
+                dictionary[position + i] = (byte) token.charAt(i);
+            }
+        }
+        return dictionary;
+    }
+
+    private static long score(final Map.Entry<String, int[]> entry) {
+        return (long) entry.getValue()[1] * entry.getKey().length();
+    }
+}
@@ -1,36 +1,162 @@
 package net.simforge.networkview.datafeeder.vatsim.json;
 
-import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
 import net.simforge.commons.misc.Str;
 import net.simforge.networkview.core.Network;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class ReportJSONFile {
     private static final int INT_NaN = Integer.MIN_VALUE;
 
-    private static final String CLIENTS = "Clients";
+    private static final int COORD_SCALE = 6;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15};
+    private static final long[] LONG_POWERS_OF_TEN = {1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L};
+    private static final double MAX_EXACT_SCALED = 0x1p50; // keeps Math.round() of scaled value exact
+
+    private static final StringDictionary strings = new StringDictionary(20000);
+
+    private static final int MIN_CHUNK_SIZE = 250;
 
     private Network network;
+    private ParseOptions options;
     private String update;
+    private int connectedClients = -1;
 
-    private List<LogEntry> log = new ArrayList<>();
+    private ValidationLog validation;
 
-    private List<ClientInfo> pilotInfos = new ArrayList<>();
+    private List<ClientInfo> pilotInfos;
+    private PilotBatch pilotBatch;
 
-    public ReportJSONFile(Network network, String data) {
+    private ReportJSONFile(Network network, ParseOptions options) {
         this.network = network;
+        this.options = options;
+        this.validation = new ValidationLog(options.isKeepingLog());
+    }
+
+    public ReportJSONFile(Network network, String data) {
+        this(network, new StringReader(data));
+    }
+
+    public ReportJSONFile(Network network, Reader data) {
+        this(network, ParseOptions.DEFAULT.withLog(true));
+
+        try {
+            parse(data);
+        } catch (MalformedJsonException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    public static ReportJSONFile parse(Network network, InputStream data) throws IOException {
+        return parse(network, data, ParseOptions.DEFAULT);
+    }
+
+    public static ReportJSONFile parse(Network network, InputStream data, ParseOptions options) throws IOException {
+        return parse(network, new InputStreamReader(data, newUtf8Decoder()), options);
+    }
+
+    public static ReportJSONFile parse(Network network, ReadableByteChannel data) throws IOException {
+        return parse(network, data, ParseOptions.DEFAULT);
+    }
+
+    public static ReportJSONFile parse(Network network, ReadableByteChannel data, ParseOptions options) throws IOException {
+        return parse(network, Channels.newReader(data, newUtf8Decoder(), -1), options);
+    }
+
+    public static ReportJSONFile parse(Network network, ByteBuffer data) throws IOException {
+        return parse(network, data, ParseOptions.DEFAULT);
+    }
+
+    public static ReportJSONFile parse(Network network, ByteBuffer data, ParseOptions options) throws IOException {
+        return parse(network, new ByteBufferReader(data.duplicate()), options);
+    }
+
+    private static ReportJSONFile parse(Network network, Reader data, ParseOptions options) throws IOException {
+        ReportJSONFile report = new ReportJSONFile(network, options);
+        report.parse(data);
+        return report;
+    }
+
+    /**
+     * Reads general.update only, the scan stops at the end of general section, so pilots are not parsed when it goes first.
+     * Returns null if there is no update in the report.
+     */
+    public static String readUpdate(String data) throws IOException {
+        return readUpdate(new StringReader(data));
+    }
+
+    public static String readUpdate(Reader data) throws IOException {
+        JsonReader in = new JsonReader(data);
+        in.setLenient(true);
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("general".equals(name) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    if ("update".equals(in.nextName())) {
+                        return readString(in);
+                    }
+                    in.skipValue();
+                }
+                return null;
+            }
+            in.skipValue();
+        }
+        return null;
+    }
+
+    /**
+     * Returns SHA-256 of the report data without general section, so the same data published under new update has the same hash.
+     * Downloaded data is hashed while it is read, see {@link ContentHash}.
+     */
+    public static String contentHash(String data) {
+        return ContentHash.of(data.getBytes(StandardCharsets.UTF_8));
+    }
 
-        Gson gson = new Gson();
+    private static CharsetDecoder newUtf8Decoder() {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
 
-        Map map = gson.fromJson(data, Map.class);
-        Map general = (Map) map.get("general");
-        update = (String) general.get("update");
+    private void parse(Reader data) throws IOException {
+        JsonReader in = new JsonReader(data);
+        in.setLenient(true);
+        parseReport(in);
 
-        List<Map> pilots = (List<Map>) map.get("pilots");
-        pilots.forEach(pilot -> pilotInfos.add(parseVatsimPilotInfo(pilot)));
+        if (update == null) {
+            throw new JsonSyntaxException("No general.update found in report");
+        }
+
+        if (options.isPublishing()) {
+            validation.publish();
+        }
     }
 
     public Network getNetwork() {
@@ -42,151 +168,530 @@ public class ReportJSONFile {
     }
 
     public List<ClientInfo> getPilotInfos() {
+        if (pilotInfos == null) {
+            pilotInfos = toClientInfos(pilotBatch);
+        }
         return Collections.unmodifiableList(pilotInfos);
     }
 
+    public PilotBatch getPilotBatch() {
+        if (pilotBatch == null) {
+            pilotBatch = PilotBatch.of(pilotInfos);
+        }
+        return pilotBatch;
+    }
+
+    /**
+     * Dictionary which interns callsigns, aircraft types and airport codes of all parsed reports.
+     */
+    public static StringDictionary getStrings() {
+        return strings;
+    }
+
+    /**
+     * Log entries are available only if the report was parsed by constructor or with {@link ParseOptions#withLog(boolean)}.
+     */
     public List<LogEntry> getLog() {
-        return Collections.unmodifiableList(log);
+        return validation.getEntries();
+    }
+
+    public ValidationLog getValidation() {
+        return validation;
     }
 
-    private ClientInfo parseVatsimPilotInfo(Map pilotJson) {
-        ClientInfo clientInfo = new ClientInfo();
+    private void parseReport(JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("general".equals(name) && in.peek() == JsonToken.BEGIN_OBJECT) {
+                parseGeneral(in);
+            } else if ("pilots".equals(name) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                // connected_clients of general section, if it goes first, tells whether the report is small
+                int threshold = options.getParallelThreshold();
+                if (threshold > 0 && (connectedClients == -1 || connectedClients >= threshold)) {
+                    parsePilotsInChunks(in);
+                } else {
+                    parsePilots(in);
+                }
+            } else {
+                in.skipValue(); // controllers, atis, servers, prefiles and reference data are not used
+            }
+        }
+        in.endObject();
+    }
 
-        String callsign = (String) pilotJson.get("callsign");
-        clientInfo.callsign                 = parseString(callsign, callsign, "Callsign", 10);
+    private void parsePilots(JsonReader in) throws IOException {
+        PilotParser parser = new PilotParser(validation);
+        PilotJson pilotJson = new PilotJson();
 
-        clientInfo.cid                      = parseInt(pilotJson, "cid", callsign, "CID is incorrect", 0);
-        clientInfo.clienttype               = ClientType.PILOT;
+        if (options.isColumnar()) {
+            PilotBatch.Builder batchBuilder = new PilotBatch.Builder();
+            ClientInfo reusedClientInfo = new ClientInfo();
 
-        clientInfo.latitude                 = parseCoord(pilotJson, "latitude", callsign, "Latitude", -90D, 90D);
-        clientInfo.longitude                = parseCoord(pilotJson, "longitude", callsign, "Longitude", -180D, 180D);
-        if (Double.isNaN(clientInfo.latitude) || Double.isNaN(clientInfo.longitude)) {
-            return null;
-        }
+            in.beginArray();
+            while (in.hasNext()) {
+                pilotJson.read(in);
+                if (parser.parse(pilotJson, reusedClientInfo)) {
+                    batchBuilder.add(reusedClientInfo);
+                }
+            }
+            in.endArray();
 
-        clientInfo.altitude                 = parseAltitude(pilotJson, callsign);
-        clientInfo.groundspeed              = parseGroundspeed(pilotJson, callsign);
-        clientInfo.heading                  = parseHeading(pilotJson, callsign);
+            pilotBatch = batchBuilder.build();
+        } else {
+            List<ClientInfo> clientInfos = new ArrayList<>();
 
-        clientInfo.qnhMb                    = parseInt(pilotJson, "qnh_mb", callsign, "QNH Mb is incorrect: " + pilotJson.get("qnh_mb"), 0);
-        if (clientInfo.qnhMb < 0 || clientInfo.qnhMb > 2000) {
-            log.add(new LogEntry(CLIENTS, callsign, "QNH MB is out of range", String.valueOf(clientInfo.qnhMb)));
-            clientInfo.qnhMb = 0;
+            in.beginArray();
+            while (in.hasNext()) {
+                pilotJson.read(in);
+                ClientInfo clientInfo = new ClientInfo();
+                if (parser.parse(pilotJson, clientInfo)) {
+                    clientInfos.add(clientInfo);
+                }
+            }
+            in.endArray();
+
+            pilotInfos = clientInfos;
         }
+    }
 
-        Map flightplanJson = (Map) pilotJson.get("flight_plan");
-        if (flightplanJson != null) {
-            clientInfo.plannedAircraft = parseString((String) flightplanJson.get("aircraft"), callsign, "Aircraft", 40);
-            clientInfo.plannedDepAirport = parseString((String) flightplanJson.get("departure"), callsign, "Departure ICAO", 4);
-            clientInfo.plannedDestAirport = parseString((String) flightplanJson.get("arrival"), callsign, "Destination ICAO", 4);
-            clientInfo.plannedRemarks = parseString((String) flightplanJson.get("remarks"), callsign, "Remarks", 300);
+    /**
+     * Validates pilots as they are read until the parallel threshold is reached, so small reports are never materialised.
+     * Raw values of the pilots beyond the threshold are read first and then validated in chunks on the fork-join pool.
+     * Pilots and log entries are merged in the original order.
+     */
+    private void parsePilotsInChunks(JsonReader in) throws IOException {
+        int threshold = options.getParallelThreshold();
+        PilotParser parser = new PilotParser(validation);
+        PilotJson reusedPilotJson = new PilotJson();
+        List<ClientInfo> clientInfos = new ArrayList<>();
+        List<PilotJson> pilotJsons = new ArrayList<>();
+
+        in.beginArray();
+        int count = 0;
+        while (in.hasNext()) {
+            if (count < threshold) {
+                reusedPilotJson.read(in);
+                ClientInfo clientInfo = new ClientInfo();
+                if (parser.parse(reusedPilotJson, clientInfo)) {
+                    clientInfos.add(clientInfo);
+                }
+            } else {
+                PilotJson pilotJson = new PilotJson();
+                pilotJson.read(in);
+                pilotJsons.add(pilotJson);
+            }
+            count++;
+        }
+        in.endArray();
+
+        if (!pilotJsons.isEmpty()) {
+            ForkJoinPool pool = ForkJoinPool.commonPool();
+            int chunkCount = Math.max(1, Math.min(pool.getParallelism() * 4, pilotJsons.size() / MIN_CHUNK_SIZE));
+
+            List<ForkJoinTask<PilotChunk>> tasks = new ArrayList<>(chunkCount);
+            for (int i = 0; i < chunkCount; i++) {
+                tasks.add(pool.submit(new PilotChunk(pilotJsons.subList(
+                        pilotJsons.size() * i / chunkCount,
+                        pilotJsons.size() * (i + 1) / chunkCount),
+                        options.isKeepingLog())));
+            }
+            for (ForkJoinTask<PilotChunk> task : tasks) {
+                PilotChunk chunk = task.join();
+                clientInfos.addAll(chunk.clientInfos);
+                validation.append(chunk.validation);
+            }
+        }
+
+        if (options.isColumnar()) {
+            pilotBatch = PilotBatch.of(clientInfos);
+        } else {
+            pilotInfos = clientInfos;
         }
+    }
+
+    private void parseGeneral(JsonReader in) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if ("update".equals(name)) {
+                update = readString(in);
+            } else if ("connected_clients".equals(name) && in.peek() == JsonToken.NUMBER) {
+                connectedClients = (int) in.nextDouble();
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+    }
 
-        return clientInfo;
+    private static List<ClientInfo> toClientInfos(PilotBatch batch) {
+        List<ClientInfo> clientInfos = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            ClientInfo clientInfo = new ClientInfo();
+            clientInfo.callsign = batch.getCallsigns().get(i);
+            clientInfo.cid = batch.getCid(i);
+            clientInfo.clienttype = ClientType.PILOT;
+            clientInfo.latitude = batch.getLatitude(i);
+            clientInfo.longitude = batch.getLongitude(i);
+            clientInfo.altitude = batch.getAltitude(i);
+            clientInfo.groundspeed = batch.getGroundspeed(i);
+            clientInfo.heading = batch.getHeading(i);
+            clientInfo.qnhMb = batch.getQnhMb(i);
+            clientInfo.plannedAircraft = batch.getPlannedAircrafts().get(i);
+            clientInfo.plannedDepAirport = batch.getPlannedDepAirports().get(i);
+            clientInfo.plannedDestAirport = batch.getPlannedDestAirports().get(i);
+            clientInfo.plannedRemarks = batch.getPlannedRemarks().get(i);
+            clientInfos.add(clientInfo);
+        }
+        return clientInfos;
     }
 
-    private String parseString(String value, String callsign, String desc, int maxLen) {
-        if (value == null) {
-            return null;
+    /**
+     * Rounds the coordinate to scale 6 using HALF_UP applied to its decimal (Double.toString) form,
+     * the result is the same as {@link #limitCoordScaleExact(double)} gives.
+     * The decimal form is searched as the shortest scale which round-trips to the same double,
+     * BigDecimal is used only for values which cannot be handled exactly with long arithmetic.
+     */
+    static double limitCoordScale(double coord) {
+        for (int scale = COORD_SCALE; scale < POWERS_OF_TEN.length; scale++) {
+            double scaled = coord * POWERS_OF_TEN[scale];
+            if (!(Math.abs(scaled) < MAX_EXACT_SCALED)) {
+                break;
+            }
+
+            long unscaled = Math.round(scaled);
+            if (unscaled / POWERS_OF_TEN[scale] != coord) {
+                continue;
+            }
+
+            if (scale == COORD_SCALE) {
+                return coord;
+            }
+
+            long divisor = LONG_POWERS_OF_TEN[scale - COORD_SCALE];
+            long rounded = unscaled / divisor;
+            if (Math.abs(unscaled % divisor) * 2 >= divisor) {
+                rounded += Long.signum(unscaled);
+            }
+            return rounded / POWERS_OF_TEN[COORD_SCALE];
+        }
+
+        return limitCoordScaleExact(coord);
+    }
+
+    static double limitCoordScaleExact(double coord) {
+        BigDecimal bigDecimalCoord = BigDecimal.valueOf(coord);
+        if (bigDecimalCoord.scale() > COORD_SCALE) {
+            return bigDecimalCoord.setScale(COORD_SCALE, RoundingMode.HALF_UP).doubleValue();
         }
+        return coord;
+    }
 
-        value = value.trim();
-        if (value.length() == 0) {
-            return null;
+    private static String readString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return in.nextString();
         }
+        in.skipValue();
+        return null;
+    }
 
-        if (value.length() > maxLen) {
-            log.add(new LogEntry(CLIENTS, callsign, desc + " is too long", value));
-            return value.substring(0, maxLen);
+    private static double readDouble(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return Double.NaN;
         }
-        return value;
+        return in.nextDouble();
     }
 
-    private int parseAltitude(Map pilotJson, String callsign) {
-        int altitude = parseInt(pilotJson, "altitude", callsign, "Could not parse altitude value");
-        if (altitude == INT_NaN) {
-            return 0; // could not parse
+    /**
+     * Validates raw pilot values and fills ClientInfo, problems found are reported to the sink.
+     */
+    private static class PilotParser {
+        private final ValidationSink sink;
+
+        private PilotParser(ValidationSink sink) {
+            this.sink = sink;
         }
-        if (altitude < -10000) {
-            log.add(new LogEntry(CLIENTS, callsign, "Altitude is too small to store in DB. Restricted to -10000.", String.valueOf(altitude)));
-            return 0;
+
+        private boolean parse(PilotJson pilotJson, ClientInfo clientInfo) {
+            String callsign = pilotJson.callsign;
+            clientInfo.callsign                 = strings.intern(parseString(callsign, callsign, ValidationRule.CALLSIGN_TOO_LONG, 10));
+
+            clientInfo.cid                      = parseInt(pilotJson.cid, callsign, ValidationRule.CID_MISSING, 0);
+            clientInfo.clienttype               = ClientType.PILOT;
+
+            clientInfo.latitude                 = parseCoord(pilotJson.latitude, callsign, -90D, 90D, ValidationRule.LATITUDE_MISSING,
+                    ValidationRule.LATITUDE_TOO_HIGH_SCALE, ValidationRule.LATITUDE_TOO_SMALL, ValidationRule.LATITUDE_TOO_GREAT);
+            clientInfo.longitude                = parseCoord(pilotJson.longitude, callsign, -180D, 180D, ValidationRule.LONGITUDE_MISSING,
+                    ValidationRule.LONGITUDE_TOO_HIGH_SCALE, ValidationRule.LONGITUDE_TOO_SMALL, ValidationRule.LONGITUDE_TOO_GREAT);
+            if (Double.isNaN(clientInfo.latitude) || Double.isNaN(clientInfo.longitude)) {
+                return false;
+            }
+
+            clientInfo.altitude                 = parseAltitude(pilotJson.altitude, callsign);
+            clientInfo.groundspeed              = parseGroundspeed(pilotJson.groundspeed, callsign);
+            clientInfo.heading                  = parseHeading(pilotJson.heading, callsign);
+
+            clientInfo.qnhMb                    = parseInt(pilotJson.qnhMb, callsign, ValidationRule.QNH_MISSING, 0);
+            if (clientInfo.qnhMb < 0 || clientInfo.qnhMb > 2000) {
+                sink.report(ValidationRule.QNH_OUT_OF_RANGE, callsign, clientInfo.qnhMb.intValue());
+                clientInfo.qnhMb = 0;
+            }
+
+            // flight plan values are null when there is no flight plan
+            clientInfo.plannedAircraft = strings.intern(parseString(pilotJson.aircraft, callsign, ValidationRule.AIRCRAFT_TOO_LONG, 40));
+            clientInfo.plannedDepAirport = strings.intern(parseString(pilotJson.departure, callsign, ValidationRule.DEPARTURE_TOO_LONG, 4));
+            clientInfo.plannedDestAirport = strings.intern(parseString(pilotJson.arrival, callsign, ValidationRule.ARRIVAL_TOO_LONG, 4));
+            clientInfo.plannedRemarks = parseString(pilotJson.remarks, callsign, ValidationRule.REMARKS_TOO_LONG, 300);
+
+            return true;
         }
-        if (altitude > 1000000) {
-            log.add(new LogEntry(CLIENTS, callsign, "Altitude is too great to store in DB. Restricted to 1000000.", String.valueOf(altitude)));
-            return 0;
+
+        private String parseString(String value, String callsign, ValidationRule tooLongRule, int maxLen) {
+            if (value == null) {
+                return null;
+            }
+
+            value = value.trim();
+            if (value.length() == 0) {
+                return null;
+            }
+
+            if (value.length() > maxLen) {
+                sink.report(tooLongRule, callsign, value);
+                return value.substring(0, maxLen);
+            }
+            return value;
         }
-        return altitude;
-    }
 
-    private int parseGroundspeed(Map pilotJson, String callsign) {
-        int groundspeed = parseInt(pilotJson, "groundspeed", callsign, "Could not parse groundspeed value");
-        if (groundspeed == INT_NaN) {
-            return 0; // could not parse
+        private int parseAltitude(double value, String callsign) {
+            int altitude = parseInt(value, callsign, ValidationRule.ALTITUDE_MISSING);
+            if (altitude == INT_NaN) {
+                return 0; // could not parse
+            }
+            if (altitude < -10000) {
+                sink.report(ValidationRule.ALTITUDE_TOO_SMALL, callsign, altitude);
+                return 0;
+            }
+            if (altitude > 1000000) {
+                sink.report(ValidationRule.ALTITUDE_TOO_GREAT, callsign, altitude);
+                return 0;
+            }
+            return altitude;
         }
-        if (groundspeed < 0) {
-            log.add(new LogEntry(CLIENTS, callsign, "Groundspeed is negative. Restricted to 0.", String.valueOf(groundspeed)));
-            return 0;
+
+        private int parseGroundspeed(double value, String callsign) {
+            int groundspeed = parseInt(value, callsign, ValidationRule.GROUNDSPEED_MISSING);
+            if (groundspeed == INT_NaN) {
+                return 0; // could not parse
+            }
+            if (groundspeed < 0) {
+                sink.report(ValidationRule.GROUNDSPEED_NEGATIVE, callsign, groundspeed);
+                return 0;
+            }
+            if (groundspeed > 32767) {
+                sink.report(ValidationRule.GROUNDSPEED_TOO_GREAT, callsign, groundspeed);
+                return 32767;
+            }
+            return groundspeed;
         }
-        if (groundspeed > 32767) {
-            log.add(new LogEntry(CLIENTS, callsign, "Groundspeed is too great to store in DB. Restricted to 32767.", String.valueOf(groundspeed)));
-            return 32767;
+
+        private int parseHeading(double value, String callsign) {
+            int heading = parseInt(value, callsign, ValidationRule.HEADING_MISSING);
+            if (heading == INT_NaN) {
+                return 0; // could not parse
+            }
+            if (heading < 0) {
+                sink.report(ValidationRule.HEADING_NEGATIVE, callsign, heading);
+                return 0;
+            }
+            if (heading > 360) {
+                sink.report(ValidationRule.HEADING_TOO_GREAT, callsign, heading);
+                return 0;
+            }
+            return heading;
         }
-        return groundspeed;
-    }
 
-    private int parseHeading(Map pilotJson, String callsign) {
-        int heading = parseInt(pilotJson, "heading", callsign, "Could not parse heading value");
-        if (heading == INT_NaN) {
-            return 0; // could not parse
+        private double parseCoord(double coord, String callsign, double min, double max, ValidationRule missingRule,
+                                  ValidationRule tooHighScaleRule, ValidationRule tooSmallRule, ValidationRule tooGreatRule) {
+            if(Double.isNaN(coord)) {
+                sink.report(missingRule, callsign, (String) null);
+                return coord;
+            }
+
+            double limitedCoord = limitCoordScale(coord);
+            if (limitedCoord != coord) {
+                sink.report(tooHighScaleRule, callsign, coord);
+                coord = limitedCoord;
+            }
+
+            if(coord > max) {
+                sink.report(tooGreatRule, callsign, coord);
+                return max;
+            }
+            if(coord < min) {
+                sink.report(tooSmallRule, callsign, coord);
+                return min;
+            }
+            return coord;
         }
-        if (heading < 0) {
-            log.add(new LogEntry(CLIENTS, callsign, "Heading is negative, reset to 0", String.valueOf(heading)));
-            return 0;
+
+        private int parseInt(double value, String callsign, ValidationRule missingRule) {
+            return parseInt(value, callsign, missingRule, INT_NaN);
         }
-        if (heading > 360) {
-            log.add(new LogEntry(CLIENTS, callsign, "Heading is too great, reset to 0", String.valueOf(heading)));
-            return 0;
+
+        private int parseInt(double value, String callsign, ValidationRule missingRule, int defaultValue) {
+            if (!Double.isNaN(value)) {
+                return (int) value;
+            } else {
+                sink.report(missingRule, callsign, (String) null);
+                return defaultValue;
+            }
         }
-        return heading;
     }
 
-    private double parseCoord(Map json, String name, String callsign, String coordName, double min, double max) {
-        Double coord = (Double) json.get(name);
+    private static class PilotChunk implements Callable<PilotChunk> {
+        private final List<PilotJson> pilotJsons;
+        private final List<ClientInfo> clientInfos = new ArrayList<>();
+        private final ValidationLog validation;
 
-        BigDecimal bigDecimalCoord = BigDecimal.valueOf(coord);
-        if (bigDecimalCoord.scale() > 6) {
-            log.add(new LogEntry("Clients", callsign, coordName + " has too high scale, limiting to scale 6", coord.toString()));
-            coord = bigDecimalCoord.setScale(6, RoundingMode.HALF_UP).doubleValue();
+        private PilotChunk(List<PilotJson> pilotJsons, boolean keepLog) {
+            this.pilotJsons = pilotJsons;
+            this.validation = new ValidationLog(keepLog);
         }
 
-        if(Double.isNaN(coord))
-            return coord;
-        if(coord > max) {
-            log.add(new LogEntry("Clients", callsign, coordName + " is greater than " + max, coord.toString()));
-            return max;
-        }
-        if(coord < min) {
-            log.add(new LogEntry("Clients", callsign, coordName + " is lower than " + min, coord.toString()));
-            return min;
+        @Override
+        public PilotChunk call() {
+            PilotParser parser = new PilotParser(validation);
+            for (PilotJson pilotJson : pilotJsons) {
+                ClientInfo clientInfo = new ClientInfo();
+                if (parser.parse(pilotJson, clientInfo)) {
+                    clientInfos.add(clientInfo);
+                }
+            }
+            return this;
         }
-        return coord;
     }
 
-    private int parseInt(Map json, String name, String callsign, String msg) {
-        return parseInt(json, name, callsign, msg, INT_NaN);
+    /**
+     * Raw values of one element of the pilots array, absent numbers are kept as NaN.
+     * One instance is reused for all pilots of the report except the pilots beyond the parallel threshold, which are parsed in chunks.
+     */
+    private static class PilotJson {
+        private String callsign;
+        private double cid;
+        private double latitude;
+        private double longitude;
+        private double altitude;
+        private double groundspeed;
+        private double heading;
+        private double qnhMb;
+        private String aircraft;
+        private String departure;
+        private String arrival;
+        private String remarks;
+
+        private void read(JsonReader in) throws IOException {
+            callsign = null;
+            cid = latitude = longitude = altitude = groundspeed = heading = qnhMb = Double.NaN;
+            aircraft = departure = arrival = remarks = null;
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "callsign":    callsign = readString(in); break;
+                    case "cid":         cid = readDouble(in); break;
+                    case "latitude":    latitude = readDouble(in); break;
+                    case "longitude":   longitude = readDouble(in); break;
+                    case "altitude":    altitude = readDouble(in); break;
+                    case "groundspeed": groundspeed = readDouble(in); break;
+                    case "heading":     heading = readDouble(in); break;
+                    case "qnh_mb":      qnhMb = readDouble(in); break;
+                    case "flight_plan": readFlightPlan(in); break;
+                    default:            in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+
+        private void readFlightPlan(JsonReader in) throws IOException {
+            if (in.peek() != JsonToken.BEGIN_OBJECT) {
+                in.skipValue();
+                return;
+            }
+
+            in.beginObject();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "aircraft":    aircraft = readString(in); break;
+                    case "departure":   departure = readString(in); break;
+                    case "arrival":     arrival = readString(in); break;
+                    case "remarks":     remarks = readString(in); break;
+                    default:            in.skipValue();
+                }
+            }
+            in.endObject();
+        }
     }
 
-    private int parseInt(Map json, String name, String callsign, String msg, int defaultValue) {
-        Double value = (Double) json.get(name);
-        if (value != null) {
-            return value.intValue();
-        } else {
-            log.add(new LogEntry(CLIENTS, callsign, msg, null));
-            return defaultValue;
+    /**
+     * Decodes UTF-8 directly from the buffer into the reader's char buffer, so mapped files are not copied to the heap first.
+     */
+    private static class ByteBufferReader extends Reader {
+        private final ByteBuffer src;
+        private final CharsetDecoder decoder = newUtf8Decoder();
+        private final CharBuffer pair = CharBuffer.allocate(2);
+        private boolean done;
+
+        private ByteBufferReader(ByteBuffer src) {
+            this.src = src;
+            this.pair.flip();
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (pair.hasRemaining()) {
+                cbuf[off] = pair.get();
+                return 1;
+            }
+            if (done) {
+                return -1;
+            }
+
+            CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+            decode(out);
+            int count = out.position() - off;
+            if (count == 0 && !done) {
+                // no room for a surrogate pair
+                pair.clear();
+                decode(pair);
+                pair.flip();
+                cbuf[off] = pair.get();
+                return 1;
+            }
+            return count > 0 ? count : -1;
+        }
+
+        private void decode(CharBuffer out) {
+            // malformed input is replaced, so the result is either underflow or overflow
+            CoderResult result = decoder.decode(src, out, true);
+            if (result.isUnderflow()) {
+                done = decoder.flush(out).isUnderflow();
+            }
+        }
+
+        @Override
+        public void close() {
+            done = true;
         }
     }
 
-    public class ClientInfo {
+    public static class ClientInfo {
         private String callsign;
         private int cid;
         private ClientType clienttype;
@@ -302,4 +807,75 @@ public class ReportJSONFile {
         }
     }
 
+    public static class ParseOptions {
+        public static final ParseOptions DEFAULT = new ParseOptions(false, 0, false, false, false);
+        public static final ParseOptions COLUMNAR = new ParseOptions(true, 0, false, false, false);
+
+        private final boolean columnar;
+        private final int parallelThreshold;
+        private final boolean keepingLog;
+        private final boolean mappedRead;
+        private final boolean publishing;
+
+        private ParseOptions(boolean columnar, int parallelThreshold, boolean keepingLog, boolean mappedRead, boolean publishing) {
+            this.columnar = columnar;
+            this.parallelThreshold = parallelThreshold;
+            this.keepingLog = keepingLog;
+            this.mappedRead = mappedRead;
+            this.publishing = publishing;
+        }
+
+        /**
+         * Pilots are stored only as {@link PilotBatch}, ClientInfo objects are created on first getPilotInfos() call.
+         */
+        public boolean isColumnar() {
+            return columnar;
+        }
+
+        /**
+         * Reports having at least this number of pilots are validated in parallel on the common fork-join pool,
+         * 0 means always sequential.
+         */
+        public int getParallelThreshold() {
+            return parallelThreshold;
+        }
+
+        /**
+         * Validation problems are always counted, log entries are kept only when asked for.
+         */
+        public boolean isKeepingLog() {
+            return keepingLog;
+        }
+
+        /**
+         * {@link ReportJSONStorage} maps report files into memory instead of reading them through a stream.
+         */
+        public boolean isMappedRead() {
+            return mappedRead;
+        }
+
+        /**
+         * Validation counts are added to {@link ValidationLog#getTotals()}. Only the task which parses each report once
+         * should publish, otherwise the totals count reports several times.
+         */
+        public boolean isPublishing() {
+            return publishing;
+        }
+
+        public ParseOptions withParallelThreshold(int parallelThreshold) {
+            return new ParseOptions(columnar, Math.max(parallelThreshold, 0), keepingLog, mappedRead, publishing);
+        }
+
+        public ParseOptions withLog(boolean keepingLog) {
+            return new ParseOptions(columnar, parallelThreshold, keepingLog, mappedRead, publishing);
+        }
+
+        public ParseOptions withMappedRead(boolean mappedRead) {
+            return new ParseOptions(columnar, parallelThreshold, keepingLog, mappedRead, publishing);
+        }
+
+        public ParseOptions withPublishing(boolean publishing) {
+            return new ParseOptions(columnar, parallelThreshold, keepingLog, mappedRead, publishing);
+        }
+    }
 }
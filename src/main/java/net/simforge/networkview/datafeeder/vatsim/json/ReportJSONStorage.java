@@ -2,86 +2,236 @@ package net.simforge.networkview.datafeeder.vatsim.json;
 
 import net.simforge.commons.io.IOHelper;
 import net.simforge.commons.legacy.BM;
+import net.simforge.commons.legacy.misc.Settings;
 import net.simforge.networkview.core.Network;
 import net.simforge.networkview.core.report.ReportUtils;
+import net.simforge.networkview.datafeeder.SettingNames;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class ReportJSONStorage {
+/**
+ * Raw JSON reports of a network under the storage root, with a sorted in-memory index of stored reports.
+ * Aliases, reports repeating data of an earlier one, are not indexed: first, next, last and listed reports never include them,
+ * they are resolved only by {@link #loadReport(String)}, {@link #mapReport(String)} and {@link #reportExists(String)}.
+ */
+public class ReportJSONStorage implements Closeable {
 
     public static final String DEFAULT_STORAGE_ROOT = "../data";
 
+    static final String ALIASES_EXTENSION = ".aliases";
+
+    /**
+     * FILES keeps every report in its own .json file, SEGMENTS appends reports to hourly segment files, see {@link ReportSegments},
+     * DELTAS keeps keyframe reports in .json files and reports in between as deltas against them, see {@link ReportDeltas}.
+     */
+    public enum Layout {
+        FILES, SEGMENTS, DELTAS
+    }
+
     private static final DateTimeFormatter yyyy = DateTimeFormatter.ofPattern("yyyy");//.withZoneUTC();
     private static final DateTimeFormatter yyyyMM = DateTimeFormatter.ofPattern("yyyy-MM");//.withZoneUTC();
     private static final DateTimeFormatter yyyyMMdd = DateTimeFormatter.ofPattern("yyyy-MM-dd");//.withZoneUTC();
+    private static final DateTimeFormatter yyyyMMddHHmmss = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private static final Map<File, ReportJSONStorage> storages = new ConcurrentHashMap<>();
 
     private final File root;
+    private final File coldRoot;
     private final Network network;
+    private final Layout layout;
+    private final ReportSegments segments;
+    private final ReportDeltas deltas;
+    private final ReportDictionaries dictionaries;
+    private final List<ReportCodec> codecs;
+    private final ReportArchives archives;
 
-    private ReportJSONStorage(final String rootPath, final Network network) {
+    // sorted names of stored report files, built on first use and kept current by this class
+    private volatile NavigableSet<String> index;
+
+    private final Object arrivals = new Object();
+    private Thread watcherThread;
+
+    private ReportJSONStorage(final File root, final File coldRoot, final Network network, final Layout layout) {
         this.network = network;
+        this.root = root;
+        this.coldRoot = coldRoot;
+        this.layout = layout;
+        this.segments = layout == Layout.SEGMENTS ? new ReportSegments(this) : null;
+        this.deltas = layout == Layout.DELTAS ? new ReportDeltas(this, getKeyframeInterval()) : null;
+        this.dictionaries = new ReportDictionaries(new File(root, ReportDictionaries.FOLDER));
+        this.codecs = Arrays.asList(new GZipCodec(), new DictionaryCodec(dictionaries));
+        this.archives = new ReportArchives(codecs);
 
-        root = new File(rootPath + "/" + network.name());
         //noinspection ResultOfMethodCallIgnored
         root.mkdirs();
     }
 
+    /**
+     * Returns the storage instance shared by all tasks working with the same root, so they share the report index.
+     */
     public static ReportJSONStorage getStorage(final String storageRoot, final Network network) {
-        return new ReportJSONStorage(storageRoot, network);
+        final String layout = Settings.get(SettingNames.storageLayout);
+        return getStorage(storageRoot, Settings.get(SettingNames.storageColdRoot), network, layout != null ? Layout.valueOf(layout.toUpperCase()) : Layout.FILES);
+    }
+
+    public static ReportJSONStorage getStorage(final String storageRoot, final Network network, final Layout layout) {
+        return getStorage(storageRoot, null, network, layout);
+    }
+
+    /**
+     * Returns the storage with hot root for recent reports and cold root for history moved by {@link MoveToColdStorage},
+     * reports are read from either root, null cold root means the hot root keeps everything.
+     */
+    public static ReportJSONStorage getStorage(final String storageRoot, final String coldStorageRoot, final Network network, final Layout layout) {
+        final File root = new File(storageRoot + "/" + network.name()).getAbsoluteFile();
+        final File coldRoot = coldStorageRoot != null ? new File(coldStorageRoot + "/" + network.name()).getAbsoluteFile() : null;
+        final ReportJSONStorage storage = storages.computeIfAbsent(root, r -> new ReportJSONStorage(r, coldRoot, network, layout));
+        if (storage.layout != layout) {
+            throw new IllegalStateException("Storage " + root + " is already used with layout " + storage.layout);
+        }
+        if (!Objects.equals(storage.coldRoot, coldRoot)) {
+            throw new IllegalStateException("Storage " + root + " is already used with cold root " + storage.coldRoot);
+        }
+        return storage;
+    }
+
+    private static int getKeyframeInterval() {
+        final String keyframeInterval = Settings.get(SettingNames.storageKeyframeInterval);
+        return keyframeInterval != null ? Integer.parseInt(keyframeInterval) : ReportDeltas.DEFAULT_KEYFRAME_INTERVAL;
+    }
+
+    /**
+     * Returns the codec configured for compression of report files, see {@link GZipReports}.
+     */
+    public ReportCodec getCodec() {
+        final String codec = Settings.get(SettingNames.storageCodec);
+        if (codec == null || codec.equalsIgnoreCase("gzip")) {
+            return codecs.get(0);
+        } else if (codec.equalsIgnoreCase("dictionary")) {
+            return codecs.get(1);
+        }
+        throw new IllegalArgumentException("Unknown codec " + codec);
+    }
+
+    ReportDictionaries getDictionaries() {
+        return dictionaries;
     }
 
     public File getRoot() {
         return root;
     }
 
+    public File getColdRoot() {
+        return coldRoot;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
     public void saveReport(final String report, final String data) throws IOException {
         BM.start("ReportJSONStorage.saveReport");
         try {
-            final File file = getReportFile(report);
+            if (segments != null) {
+                segments.append(report, data.getBytes(StandardCharsets.UTF_8));
+            } else if (deltas != null) {
+                deltas.append(report, data.getBytes(StandardCharsets.UTF_8));
+            } else {
+                final File file = getReportFile(report);
+                //noinspection ResultOfMethodCallIgnored
+                file.getParentFile().mkdirs();
+                IOHelper.saveFile(file, data);
+            }
+            reportArrived(report);
+        } finally {
+            BM.stop();
+        }
+    }
+
+    /**
+     * Records the report as alias of the target report which has the same data except of general section, the report data is not written.
+     * Aliases are kept in yyyy-MM-dd.aliases file next to the date folder, one "report target" line per alias, and are not
+     * added to the index, so tasks reading reports one by one do not process the same data twice.
+     * Loading or mapping the alias returns data of the target report.
+     */
+    public void saveAlias(final String report, final String target) throws IOException {
+        BM.start("ReportJSONStorage.saveAlias");
+        try {
+            final File file = getAliasesFile(report);
             //noinspection ResultOfMethodCallIgnored
             file.getParentFile().mkdirs();
-            IOHelper.saveFile(file, data);
+            final String line = report + " " + target + "\n";
+            Files.write(file.toPath(), line.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
         } finally {
             BM.stop();
         }
     }
 
+    /**
+     * Returns the report the alias refers to, null if the report is not an alias.
+     */
+    public String getAliasTarget(final String report) throws IOException {
+        final File file = locate(getAliasesFile(report));
+        if (!file.exists()) {
+            return null;
+        }
+
+        final String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII);
+        String target = null;
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) != -1) {
+            final String[] entry = content.substring(start, end).split(" ");
+            if (entry.length == 2 && entry[0].equals(report)) {
+                target = entry[1];
+            }
+            start = end + 1;
+        }
+        return target;
+    }
+
     public String getFirstReport() throws IOException {
         BM.start("ReportJSONStorage.getFirstReport");
         try {
-            final List<String> allReports = listAllReports();
-            if (allReports.size() == 0) {
-                return null;
-            }
-            return allReports.get(0);
+            final NavigableSet<String> index = getIndex();
+            return !index.isEmpty() ? index.first() : null;
         } finally {
             BM.stop();
         }
     }
 
+    /**
+     * Returns the stored report next to the given one, null when there is none or the given report is not stored.
+     * Aliases are not in the index, so consumers reading reports one by one skip alias timestamps and see repeated data once,
+     * under its target report. An alias is not a valid previous report either, the target should be passed instead.
+     */
     public String getNextReport(final String previousReport) throws IOException {
         BM.start("ReportJSONStorage.getNextReport");
         try {
-            final List<String> allReports = listAllReports();
-            if (allReports.size() == 0) {
+            final NavigableSet<String> index = getIndex();
+            if (!index.contains(previousReport)) {
                 return null;
             }
-            final int index = allReports.indexOf(previousReport);
-            if (index == -1) {
-                return null;
-            }
-            if (index == allReports.size() - 1) {
-                return null;
-            }
-            return allReports.get(index + 1);
+            return index.higher(previousReport);
         } finally {
             BM.stop();
         }
@@ -90,56 +240,310 @@ public class ReportJSONStorage {
     public String getLastReport() throws IOException {
         BM.start("ReportJSONStorage.getLastReport");
         try {
-            final List<String> allReports = listAllReports();
-            if (allReports.size() == 0) {
-                return null;
+            final NavigableSet<String> index = getIndex();
+            return !index.isEmpty() ? index.last() : null;
+        } finally {
+            BM.stop();
+        }
+    }
+
+    public String getFirstReportAfter(final LocalDateTime dateTime) throws IOException {
+        BM.start("ReportJSONStorage.getFirstReportAfter");
+        try {
+            return getIndex().higher(yyyyMMddHHmmss.format(dateTime));
+        } finally {
+            BM.stop();
+        }
+    }
+
+    /**
+     * Returns the report next to the given one, waiting up to the timeout for it to be saved.
+     * Reports saved by this process wake the waiting threads immediately, reports of other processes are seen after {@link #startWatching()}.
+     */
+    public String awaitNextReport(final String previousReport, final long timeoutMillis) throws IOException, InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (arrivals) {
+            while (true) {
+                final String nextReport = getNextReport(previousReport);
+                if (nextReport != null) {
+                    return nextReport;
+                }
+
+                final long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                arrivals.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * Starts watching the storage tree for reports written and deleted by other processes, does nothing if already started.
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcherThread != null) {
+            return;
+        }
+
+        watcherThread = new Thread(new ReportWatcher(this), "ReportWatcher-" + network);
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Stops watching the storage tree and waits for the watcher to close its watch service, does nothing if not started.
+     */
+    public synchronized void stopWatching() {
+        if (watcherThread == null) {
+            return;
+        }
+
+        watcherThread.interrupt();
+        try {
+            watcherThread.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        watcherThread = null;
+    }
+
+    /**
+     * Stops watching and releases the shared instance, the next {@link #getStorage} call for the root creates a new one.
+     */
+    @Override
+    public void close() {
+        stopWatching();
+        storages.remove(root, this);
+    }
+
+    void reportArrived(final String report) {
+        try {
+            getIndex().add(report);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        reportsChanged();
+    }
+
+    void reportDeleted(final String report) {
+        final NavigableSet<String> index = this.index;
+        if (index != null) {
+            index.remove(report);
+        }
+    }
+
+    void reportsChanged() {
+        synchronized (arrivals) {
+            arrivals.notifyAll();
+        }
+    }
+
+    /**
+     * Returns reports in range [fromReport, toReport), the result is a read-only view of the index.
+     */
+    public NavigableSet<String> getReports(final String fromReport, final String toReport) throws IOException {
+        return Collections.unmodifiableNavigableSet(getIndex().subSet(fromReport, true, toReport, false));
+    }
+
+    /**
+     * Checks whether the report is kept in any form: plain, compressed, in the daily archive, in a segment, as delta or as alias.
+     */
+    boolean reportExists(final String report) throws IOException {
+        return isStored(report) || getAliasTarget(report) != null;
+    }
+
+    private boolean isStored(final String report) throws IOException {
+        if (segments != null) {
+            return getIndex().contains(report);
+        }
+        if (deltas != null) {
+            return deltas.exists(report);
+        }
+        if (locate(getReportFile(report)).exists()) {
+            return true;
+        }
+        for (final ReportCodec codec : codecs) {
+            if (locate(getReportFile(report, codec)).exists()) {
+                return true;
             }
-            return allReports.get(allReports.size() - 1);
+        }
+        return archives.contains(locate(getArchiveFile(report)), report);
+    }
+
+    /**
+     * Seals the first open segment which has all its reports before the threshold.
+     * Returns the hour of the sealed segment or null when there is nothing to seal.
+     */
+    public String sealNextSegment(final LocalDateTime threshold) throws IOException {
+        if (segments == null) {
+            throw new UnsupportedOperationException("Segments are used in segment layout only");
+        }
+
+        BM.start("ReportJSONStorage.sealNextSegment");
+        try {
+            final NavigableSet<String> index = getIndex();
+            final String thresholdReport = yyyyMMddHHmmss.format(threshold);
+
+            String report = !index.isEmpty() ? index.first() : null;
+            while (report != null) {
+                final String hour = ReportSegments.toHour(report);
+                final String lastReportOfHour = hour + "5959";
+                if (lastReportOfHour.compareTo(thresholdReport) > 0) {
+                    return null;
+                }
+                if (segments.isOpen(hour)) {
+                    segments.seal(hour);
+                    return hour;
+                }
+                report = index.higher(lastReportOfHour);
+            }
+            return null;
         } finally {
             BM.stop();
         }
     }
 
+    /**
+     * Rebuilds the index from the file system, needed when report files are changed by other processes.
+     */
+    public synchronized void rebuildIndex() throws IOException {
+        index = new ConcurrentSkipListSet<>(listAllReports());
+    }
+
+    private NavigableSet<String> getIndex() throws IOException {
+        NavigableSet<String> result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new ConcurrentSkipListSet<>(listAllReports());
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
     public ReportJSONFile loadReport(final String report) throws IOException {
+        return loadReport(report, ReportJSONFile.ParseOptions.DEFAULT);
+    }
+
+    /**
+     * Loads the report whatever its form is: plain file, compressed file made by {@link GZipReports},
+     * entry of the daily archive made by {@link DailyArchive}, segment region or alias made by {@link #saveAlias}.
+     */
+    public ReportJSONFile loadReport(final String requestedReport, final ReportJSONFile.ParseOptions options) throws IOException {
         BM.start("ReportJSONStorage.loadReport");
         try {
-            final File file = getReportFile(report);
-            final String content = IOHelper.loadFile(file);
-            return new ReportJSONFile(network, content);
+            final String report = resolveAlias(requestedReport);
+            if (options.isMappedRead()) {
+                return ReportJSONFile.parse(network, mapReport(report), options);
+            }
+
+            if (segments != null) {
+                return ReportJSONFile.parse(network, segments.read(report), options);
+            }
+            if (deltas != null) {
+                return ReportJSONFile.parse(network, ByteBuffer.wrap(deltas.read(report)), options);
+            }
+
+            final File file = locate(getReportFile(report));
+            if (file.exists()) {
+                try (final InputStream in = new FileInputStream(file)) {
+                    return ReportJSONFile.parse(network, in, options);
+                }
+            }
+
+            return ReportJSONFile.parse(network, readCompressedReport(report), options);
+        } finally {
+            BM.stop();
+        }
+    }
+
+    /**
+     * Returns report data as read-only buffer mapped from the file, the mapping does not need the file to stay open.
+     * Compressed, archived and delta reports and reports of sealed segments are decoded and are returned as heap buffers.
+     */
+    public ByteBuffer mapReport(final String requestedReport) throws IOException {
+        BM.start("ReportJSONStorage.mapReport");
+        try {
+            final String report = resolveAlias(requestedReport);
+            if (segments != null) {
+                return segments.map(report);
+            }
+            if (deltas != null) {
+                return ByteBuffer.wrap(deltas.read(report));
+            }
+
+            final File file = locate(getReportFile(report));
+            if (file.exists()) {
+                try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                }
+            }
+
+            return readCompressedReport(report);
         } finally {
             BM.stop();
         }
     }
 
+    /**
+     * Returns the target of the alias, reports of the index are not checked for aliases.
+     */
+    private String resolveAlias(final String report) throws IOException {
+        if (getIndex().contains(report)) {
+            return report;
+        }
+        final String target = getAliasTarget(report);
+        return target != null ? target : report;
+    }
+
+    private ByteBuffer readCompressedReport(final String report) throws IOException {
+        for (final ReportCodec codec : codecs) {
+            final File file = locate(getReportFile(report, codec));
+            if (file.exists()) {
+                return ByteBuffer.wrap(codec.decode(Files.readAllBytes(file.toPath())));
+            }
+        }
+        return ByteBuffer.wrap(archives.read(locate(getArchiveFile(report)), report));
+    }
+
+    /**
+     * Scans the file system for report files, use the index-based methods when possible.
+     */
     public List<String> listAllReports() throws IOException {
         BM.start("ReportJSONStorage.listAllReports");
         try {
             final List<String> reports = new ArrayList<>();
 
-            Files.walkFileTree(Paths.get(root.toURI()), new FileVisitor<Path>() {
+            final FileVisitor<Path> visitor = new FileVisitor<Path>() {
                 @Override
                 public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
                     return FileVisitResult.CONTINUE;
                 }
 
                 @Override
-                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
                     if (!attrs.isRegularFile()) {
                         return FileVisitResult.CONTINUE;
                     }
 
-                    String filename = file.getFileName().toString();
-                    if (!filename.endsWith(".json")) {
+                    final String filename = file.getFileName().toString();
+                    if (filename.endsWith(ReportSegments.INDEX_EXTENSION)) {
+                        reports.addAll(ReportSegments.readReports(file.toFile()));
                         return FileVisitResult.CONTINUE;
                     }
-
-                    filename = filename.substring(0, filename.length() - ".json".length());
-
-                    if (!ReportUtils.isTimestamp(filename)) {
+                    if (filename.endsWith(ReportArchives.ARCHIVE_EXTENSION)) {
+                        reports.addAll(archives.listReports(file.toFile()));
                         return FileVisitResult.CONTINUE;
                     }
 
-                    reports.add(filename);
+                    final String report = toReport(filename);
+                    if (report != null) {
+                        reports.add(report);
+                    }
 
                     return FileVisitResult.CONTINUE;
                 }
@@ -153,9 +557,16 @@ public class ReportJSONStorage {
                 public FileVisitResult postVisitDirectory(final Path dir, final IOException exc) {
                     return FileVisitResult.CONTINUE;
                 }
-            });
+            };
+
+            for (final File root : getRoots()) {
+                if (root.exists()) {
+                    Files.walkFileTree(Paths.get(root.toURI()), visitor);
+                }
+            }
 
             Collections.sort(reports);
+            removeDuplicates(reports); // a report saved twice has two segment index lines, a report being archived or moved is in two files
 
             return reports;
         } finally {
@@ -163,13 +574,338 @@ public class ReportJSONStorage {
         }
     }
 
+    /**
+     * Lists reports in range [fromReport, toReport) lazily from the file system, null bound means no limit.
+     * Only year, month and date folders overlapping the range are listed.
+     */
+    public Stream<String> listReports(final String fromReport, final String toReport) {
+        final Iterator<String> iterator = new ReportTreeIterator(fromReport, toReport);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    private static void removeDuplicates(final List<String> sortedReports) {
+        String previous = null;
+        final Iterator<String> iterator = sortedReports.iterator();
+        while (iterator.hasNext()) {
+            final String report = iterator.next();
+            if (report.equals(previous)) {
+                iterator.remove();
+            }
+            previous = report;
+        }
+    }
+
     public File getReportFile(final String report) {
         final String filename = reportToFullPath(report);
         return new File(root, filename);
     }
 
+    public File getReportFile(final String report, final ReportCodec codec) {
+        final File file = getReportFile(report);
+        return new File(file.getParentFile(), report + codec.getExtension());
+    }
+
+    /**
+     * Returns the daily archive which keeps the report after {@link DailyArchive} run, it is located next to the date folder.
+     */
+    public File getArchiveFile(final String report) {
+        final File dateFolder = getReportFile(report).getParentFile();
+        return new File(dateFolder.getParentFile(), dateFolder.getName() + ReportArchives.ARCHIVE_EXTENSION);
+    }
+
+    public File getAliasesFile(final String report) {
+        final File dateFolder = getReportFile(report).getParentFile();
+        return new File(dateFolder.getParentFile(), dateFolder.getName() + ALIASES_EXTENSION);
+    }
+
+    /**
+     * Returns hot root and cold root if it is configured.
+     */
+    public List<File> getRoots() {
+        return coldRoot != null ? Arrays.asList(root, coldRoot) : Collections.singletonList(root);
+    }
+
+    /**
+     * Returns the file of the hot root, or its counterpart of the cold root when only the cold one exists.
+     * Files are always written to the hot root, so paths built from the hot root are resolved with this method for reading.
+     */
+    File locate(final File file) {
+        if (coldRoot == null || file.exists()) {
+            return file;
+        }
+        final File coldFile = toCold(file);
+        return coldFile.exists() ? coldFile : file;
+    }
+
+    private File toCold(final File file) {
+        return new File(coldRoot, root.toPath().relativize(file.toPath()).toString());
+    }
+
+    /**
+     * Moves files of the earliest day before the threshold from the hot root to the cold root.
+     * Days having files not completed yet, like plain reports waiting for compression or open segments, are not moved.
+     * Returns the moved date or null when there is nothing to move.
+     */
+    public String moveNextDayToCold(final LocalDate threshold) throws IOException {
+        if (coldRoot == null) {
+            throw new IllegalStateException("Cold root is not configured for storage " + root);
+        }
+
+        BM.start("ReportJSONStorage.moveNextDayToCold");
+        try {
+            final String thresholdDate = yyyyMMdd.format(threshold);
+            for (final File year : listSorted(root, f -> f.isDirectory() && f.getName().matches("\\d{4}"))) {
+                for (final File month : listSorted(year, f -> f.isDirectory() && f.getName().matches("\\d{4}-\\d{2}"))) {
+                    final SortedSet<String> dates = new TreeSet<>();
+                    for (final File file : listSorted(month, f -> f.getName().matches("\\d{4}-\\d{2}-\\d{2}(\\.zip|\\.aliases)?"))) {
+                        dates.add(file.getName().substring(0, "yyyy-MM-dd".length()));
+                    }
+
+                    for (final String date : dates) {
+                        if (date.compareTo(thresholdDate) >= 0) {
+                            return null;
+                        }
+
+                        final File dateFolder = new File(month, date);
+                        final File[] files = listSorted(dateFolder, File::isFile);
+                        for (final File file : files) {
+                            if (!isCompleted(file.getName())) {
+                                return null;
+                            }
+                        }
+
+                        for (final File file : files) {
+                            moveToCold(file);
+                        }
+                        final File archiveFile = new File(month, date + ReportArchives.ARCHIVE_EXTENSION);
+                        if (archiveFile.exists()) {
+                            moveToCold(archiveFile);
+                        }
+                        final File aliasesFile = new File(month, date + ALIASES_EXTENSION);
+                        if (aliasesFile.exists()) {
+                            moveToCold(aliasesFile);
+                        }
+                        if (dateFolder.exists() && !dateFolder.delete()) {
+                            throw new IOException("unable to delete date folder " + dateFolder);
+                        }
+                        return date;
+                    }
+                }
+            }
+            return null;
+        } finally {
+            BM.stop();
+        }
+    }
+
+    private boolean isCompleted(final String filename) {
+        if (filename.endsWith(".tmp")) {
+            return false;
+        }
+        if (layout == Layout.FILES) {
+            return !filename.endsWith(".json");
+        }
+        if (layout == Layout.SEGMENTS) {
+            return !filename.endsWith(ReportSegments.SEGMENT_EXTENSION);
+        }
+        return true;
+    }
+
+    private void moveToCold(final File file) throws IOException {
+        final File coldFile = toCold(file);
+        //noinspection ResultOfMethodCallIgnored
+        coldFile.getParentFile().mkdirs();
+
+        // the file is copied under temporary name first, so readers see either hot or complete cold file
+        final File tempFile = new File(coldFile.getParentFile(), coldFile.getName() + ".tmp");
+        Files.copy(file.toPath(), tempFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+        Files.move(tempFile.toPath(), coldFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file.toPath());
+    }
+
+    private static File[] listSorted(final File parent, final FileFilter filter) {
+        final File[] files = parent.listFiles(filter);
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        return files;
+    }
+
+    /**
+     * Returns report of plain, compressed or delta report file name, null for other files.
+     */
+    static String toReport(final String filename) {
+        final String report;
+        if (filename.endsWith(".json")) {
+            report = filename.substring(0, filename.length() - ".json".length());
+        } else if (isCompressedReportFile(filename)) {
+            report = filename.substring(0, filename.lastIndexOf(".json."));
+        } else if (filename.endsWith(ReportDeltas.DELTA_EXTENSION)) {
+            report = filename.substring(0, filename.length() - ReportDeltas.DELTA_EXTENSION.length());
+        } else {
+            return null;
+        }
+        return ReportUtils.isTimestamp(report) ? report : null;
+    }
+
     private String reportToFullPath(final String report) {
         final LocalDateTime dateTime = ReportUtils.fromTimestampJava(report);
         return yyyy.format(dateTime) + "/" + yyyyMM.format(dateTime) + "/" + yyyyMMdd.format(dateTime) + "/" + report + ".json";
     }
+
+    static boolean isCompressedReportFile(final String filename) {
+        return filename.endsWith(GZipCodec.EXTENSION) || filename.endsWith(DictionaryCodec.EXTENSION);
+    }
+
+    private class ReportTreeIterator implements Iterator<String> {
+        private final String lowerReport;
+        private final String upperReport;
+        private final String[] lowerFolders;
+        private final String[] upperFolders;
+
+        // folders of the current path, from year to date level, a date may be a folder or a daily archive or both
+        private final File[][] folders = new File[3][];
+        private final int[] positions = new int[3];
+        private String[] reports = new String[0];
+        private int reportPosition;
+        private int level = -1;
+
+        private ReportTreeIterator(final String lowerReport, final String upperReport) {
+            this.lowerReport = lowerReport;
+            this.upperReport = upperReport;
+            this.lowerFolders = toFolders(lowerReport);
+            this.upperFolders = toFolders(upperReport);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (reportPosition >= reports.length) {
+                if (!nextDateFolder()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return reports[reportPosition++];
+        }
+
+        private boolean nextDateFolder() {
+            if (level == -1) {
+                folders[0] = listFolders(root, 0);
+                positions[0] = 0;
+                level = 0;
+            }
+
+            while (level >= 0) {
+                if (positions[level] >= folders[level].length) {
+                    level--;
+                    continue;
+                }
+
+                final File folder = folders[level][positions[level]++];
+                if (level < 2) {
+                    level++;
+                    folders[level] = listFolders(folder, level);
+                    positions[level] = 0;
+                } else {
+                    reports = listReportFiles(folder);
+                    reportPosition = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private File[] listFolders(final File parent, final int level) {
+            final String lower = lowerFolders != null ? lowerFolders[level] : null;
+            final String upper = upperFolders != null ? upperFolders[level] : null;
+            final String pattern = level == 0 ? "\\d{4}" : level == 1 ? "\\d{4}-\\d{2}" : "\\d{4}-\\d{2}-\\d{2}";
+
+            final SortedSet<String> folderNames = new TreeSet<>();
+            for (final File dir : toRootDirs(parent)) {
+                final String[] names = dir.list();
+                if (names == null) {
+                    continue;
+                }
+                for (String name : names) {
+                    if (level == 2 && name.endsWith(ReportArchives.ARCHIVE_EXTENSION)) {
+                        name = name.substring(0, name.length() - ReportArchives.ARCHIVE_EXTENSION.length());
+                    } else if (!new File(dir, name).isDirectory()) {
+                        continue;
+                    }
+                    if ((lower == null || name.compareTo(lower) >= 0)
+                            && (upper == null || name.compareTo(upper) <= 0)
+                            && name.matches(pattern)) {
+                        folderNames.add(name);
+                    }
+                }
+            }
+
+            final File[] files = new File[folderNames.size()];
+            int i = 0;
+            for (final String name : folderNames) {
+                files[i++] = new File(parent, name);
+            }
+            return files;
+        }
+
+        private String[] listReportFiles(final File folder) {
+            final List<String> candidates = new ArrayList<>();
+            try {
+                for (final File dir : toRootDirs(folder)) {
+                    candidates.addAll(archives.listReports(new File(dir.getParentFile(), dir.getName() + ReportArchives.ARCHIVE_EXTENSION)));
+
+                    final String[] names = dir.list();
+                    for (final String name : names != null ? names : new String[0]) {
+                        if (name.endsWith(ReportSegments.INDEX_EXTENSION)) {
+                            candidates.addAll(ReportSegments.readReports(new File(dir, name)));
+                        } else {
+                            final String report = toReport(name);
+                            if (report != null) {
+                                candidates.add(report);
+                            }
+                        }
+                    }
+                }
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            final List<String> result = new ArrayList<>(candidates.size());
+            for (final String report : candidates) {
+                if (lowerReport != null && report.compareTo(lowerReport) < 0) {
+                    continue;
+                }
+                if (upperReport != null && report.compareTo(upperReport) >= 0) {
+                    continue;
+                }
+                if (!ReportUtils.isTimestamp(report)) {
+                    continue;
+                }
+                result.add(report);
+            }
+            Collections.sort(result);
+            removeDuplicates(result);
+            return result.toArray(new String[0]);
+        }
+
+        private List<File> toRootDirs(final File dir) {
+            return coldRoot != null ? Arrays.asList(dir, toCold(dir)) : Collections.singletonList(dir);
+        }
+
+        private String[] toFolders(final String report) {
+            if (report == null) {
+                return null;
+            }
+            final LocalDateTime dateTime = ReportUtils.fromTimestampJava(report);
+            return new String[]{yyyy.format(dateTime), yyyyMM.format(dateTime), yyyyMMdd.format(dateTime)};
+        }
+    }
 }
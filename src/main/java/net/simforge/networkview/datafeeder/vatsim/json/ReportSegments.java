@@ -0,0 +1,255 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.report.ReportUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Hourly segment layout of raw reports. Reports of one hour are appended to yyyyMMddHH.seg file in the date folder,
+ * yyyyMMddHH.idx file keeps one "report offset length" line per report and is appended after the report data is written.
+ * Sealing compresses every report of the segment as a separate gzip member of yyyyMMddHH.seg.gz, so a report is inflated
+ * without inflating reports before it. Index lines of a sealed segment get offset and length of the member of the report.
+ */
+class ReportSegments {
+    static final String SEGMENT_EXTENSION = ".seg";
+    static final String SEALED_SEGMENT_EXTENSION = ".seg.gz";
+    static final String INDEX_EXTENSION = ".idx";
+
+    private final ReportJSONStorage storage;
+    private final File root;
+
+    ReportSegments(final ReportJSONStorage storage) {
+        this.storage = storage;
+        this.root = storage.getRoot();
+    }
+
+    synchronized void append(final String report, final byte[] data) throws IOException {
+        final String hour = toHour(report);
+        final File segmentFile = getSegmentFile(hour);
+        if (storage.locate(getSealedSegmentFile(hour)).exists()) {
+            throw new IOException("segment " + hour + " is sealed, unable to append report " + report);
+        }
+        //noinspection ResultOfMethodCallIgnored
+        segmentFile.getParentFile().mkdirs();
+
+        final long offset;
+        try (final FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            offset = channel.size();
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            long position = offset;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        }
+
+        final String line = report + " " + offset + " " + data.length + "\n";
+        Files.write(getIndexFile(hour).toPath(), line.getBytes(StandardCharsets.US_ASCII), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    ByteBuffer read(final String report) throws IOException {
+        final String hour = toHour(report);
+        final long[] entry = findEntry(hour, report);
+        if (entry == null) {
+            throw new FileNotFoundException("report " + report + " not found in segment " + hour);
+        }
+        final long offset = entry[0];
+        final int length = (int) entry[1];
+
+        final File segmentFile = getSegmentFile(hour);
+        if (segmentFile.exists()) {
+            try (final FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ)) {
+                final ByteBuffer buffer = ByteBuffer.allocate(length);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new EOFException("segment " + hour + " is shorter than its index");
+                    }
+                }
+                buffer.flip();
+                return buffer;
+            }
+        }
+
+        final File sealedFile = storage.locate(getSealedSegmentFile(hour));
+        if (entry.length < 4) {
+            return readWhole(sealedFile, hour, offset, length);
+        }
+
+        final byte[] block = new byte[(int) entry[3]];
+        try (final RandomAccessFile file = new RandomAccessFile(sealedFile, "r")) {
+            file.seek(entry[2]);
+            file.readFully(block);
+        }
+        try (final DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(block), 65536))) {
+            final byte[] data = new byte[length];
+            in.readFully(data);
+            return ByteBuffer.wrap(data);
+        }
+    }
+
+    /**
+     * Reads the report of a segment sealed as a single gzip stream, data before the report is inflated and skipped.
+     */
+    private static ByteBuffer readWhole(final File sealedFile, final String hour, final long offset, final int length) throws IOException {
+        try (final DataInputStream in = new DataInputStream(new GZIPInputStream(new FileInputStream(sealedFile), 65536))) {
+            long skipped = 0;
+            while (skipped < offset) {
+                final long n = in.skip(offset - skipped);
+                if (n <= 0) {
+                    throw new EOFException("segment " + hour + " is shorter than its index");
+                }
+                skipped += n;
+            }
+            final byte[] data = new byte[length];
+            in.readFully(data);
+            return ByteBuffer.wrap(data);
+        }
+    }
+
+    /**
+     * Maps the report of an open segment as read-only buffer, reports of sealed segments are read to the heap.
+     */
+    ByteBuffer map(final String report) throws IOException {
+        final String hour = toHour(report);
+        final File segmentFile = getSegmentFile(hour);
+        if (!segmentFile.exists()) {
+            return read(report);
+        }
+
+        final long[] entry = findEntry(hour, report);
+        if (entry == null) {
+            throw new FileNotFoundException("report " + report + " not found in segment " + hour);
+        }
+        try (final FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, entry[0], entry[1]);
+        }
+    }
+
+    boolean isOpen(final String hour) {
+        return getSegmentFile(hour).exists();
+    }
+
+    /**
+     * Compresses the segment of the hour report by report, replaces its index and deletes the uncompressed segment.
+     */
+    synchronized void seal(final String hour) throws IOException {
+        final File segmentFile = getSegmentFile(hour);
+        final File sealedFile = getSealedSegmentFile(hour);
+        final File indexFile = getIndexFile(hour);
+        final File tempFile = new File(segmentFile.getParentFile(), hour + SEALED_SEGMENT_EXTENSION + ".tmp");
+        final File tempIndexFile = new File(segmentFile.getParentFile(), hour + INDEX_EXTENSION + ".tmp");
+
+        final StringBuilder index = new StringBuilder();
+        try (final FileChannel channel = FileChannel.open(segmentFile.toPath(), StandardOpenOption.READ);
+             final FileOutputStream fos = new FileOutputStream(tempFile)) {
+            final ByteArrayOutputStream block = new ByteArrayOutputStream();
+            long blockOffset = 0;
+            for (final String[] entry : readIndex(indexFile)) {
+                final long offset = Long.parseLong(entry[1]);
+                final int length = Integer.parseInt(entry[2]);
+                final ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+
+                block.reset();
+                try (final GZIPOutputStream gos = new GZIPOutputStream(block, 65536)) {
+                    final byte[] buffer = new byte[65536];
+                    while (data.hasRemaining()) {
+                        final int n = Math.min(buffer.length, data.remaining());
+                        data.get(buffer, 0, n);
+                        gos.write(buffer, 0, n);
+                    }
+                }
+                block.writeTo(fos);
+
+                index.append(entry[0]).append(' ').append(offset).append(' ').append(length)
+                        .append(' ').append(blockOffset).append(' ').append(block.size()).append('\n');
+                blockOffset += block.size();
+            }
+        }
+        Files.write(tempIndexFile.toPath(), index.toString().getBytes(StandardCharsets.US_ASCII));
+
+        if (!tempFile.renameTo(sealedFile)) {
+            throw new IOException("unable to rename " + tempFile + " to " + sealedFile);
+        }
+        // the segment is still there, so readers of the replaced index keep reading uncompressed data until it is deleted
+        Files.move(tempIndexFile.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (!segmentFile.delete()) {
+            throw new IOException("unable to delete segment file " + segmentFile);
+        }
+    }
+
+    /**
+     * Reads reports of the index file, incomplete last line is ignored as it is being written.
+     */
+    static List<String> readReports(final File indexFile) throws IOException {
+        final List<String> reports = new ArrayList<>();
+        for (final String[] entry : readIndex(indexFile)) {
+            reports.add(entry[0]);
+        }
+        return reports;
+    }
+
+    private long[] findEntry(final String hour, final String report) throws IOException {
+        final File indexFile = storage.locate(getIndexFile(hour));
+        if (!indexFile.exists()) {
+            return null;
+        }
+        long[] result = null;
+        for (final String[] entry : readIndex(indexFile)) {
+            if (entry[0].equals(report)) {
+                // the last one wins if saved twice
+                result = entry.length == 5
+                        ? new long[]{Long.parseLong(entry[1]), Long.parseLong(entry[2]), Long.parseLong(entry[3]), Long.parseLong(entry[4])}
+                        : new long[]{Long.parseLong(entry[1]), Long.parseLong(entry[2])};
+            }
+        }
+        return result;
+    }
+
+    private static List<String[]> readIndex(final File indexFile) throws IOException {
+        final String content = new String(Files.readAllBytes(indexFile.toPath()), StandardCharsets.US_ASCII);
+        final List<String[]> entries = new ArrayList<>();
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) != -1) {
+            final String[] entry = content.substring(start, end).split(" ");
+            if ((entry.length == 3 || entry.length == 5) && ReportUtils.isTimestamp(entry[0])) {
+                entries.add(entry);
+            }
+            start = end + 1;
+        }
+        return entries;
+    }
+
+    static String toHour(final String report) {
+        return report.substring(0, "yyyyMMddHH".length());
+    }
+
+    File getSegmentFile(final String hour) {
+        return new File(getDateFolder(hour), hour + SEGMENT_EXTENSION);
+    }
+
+    File getSealedSegmentFile(final String hour) {
+        return new File(getDateFolder(hour), hour + SEALED_SEGMENT_EXTENSION);
+    }
+
+    File getIndexFile(final String hour) {
+        return new File(getDateFolder(hour), hour + INDEX_EXTENSION);
+    }
+
+    private File getDateFolder(final String hour) {
+        final String year = hour.substring(0, 4);
+        final String month = hour.substring(4, 6);
+        final String day = hour.substring(6, 8);
+        return new File(root, year + "/" + year + "-" + month + "/" + year + "-" + month + "-" + day);
+    }
+}
@@ -0,0 +1,169 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches the storage tree for report files and segment indexes written or deleted by other processes and passes them to the storage.
+ * New files are passed only after they have not been modified for a quiet period, so readers do not see partially written reports.
+ */
+class ReportWatcher implements Runnable {
+    private static final Logger logger = LoggerFactory.getLogger(ReportWatcher.class);
+
+    private static final long POLL_MILLIS = 100;
+    private static final long QUIET_MILLIS = 500;
+
+    private final ReportJSONStorage storage;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> folders = new HashMap<>();
+    private final Map<String, File> pendingReports = new HashMap<>();
+
+    ReportWatcher(final ReportJSONStorage storage) throws IOException {
+        this.storage = storage;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        registerTree(storage.getRoot().toPath(), false);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                final WatchKey key = watchService.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    processEvents(key);
+                }
+                passQuietReports();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (final ClosedWatchServiceException e) {
+            // closed on shutdown
+        } catch (final IOException e) {
+            logger.error("I/O exception happened, report watcher stopped", e);
+        } finally {
+            try {
+                watchService.close();
+            } catch (final IOException e) {
+                logger.warn("Unable to close watch service", e);
+            }
+        }
+    }
+
+    private void processEvents(final WatchKey key) throws IOException {
+        final Path folder = folders.get(key);
+
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                logger.warn("Watch events lost, rebuilding report index");
+                storage.rebuildIndex();
+                storage.reportsChanged();
+                continue;
+            }
+            if (folder == null) {
+                continue;
+            }
+
+            final Path path = folder.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(path)) {
+                registerTree(path, true);
+                continue;
+            }
+
+            if (path.getFileName().toString().endsWith(ReportSegments.INDEX_EXTENSION)) {
+                if (event.kind() != ENTRY_DELETE) {
+                    passSegmentReports(path);
+                }
+                continue;
+            }
+
+            final String report = toReport(path);
+            if (report == null) {
+                continue;
+            }
+
+            if (event.kind() == ENTRY_DELETE) {
+                pendingReports.remove(report);
+                if (!storage.reportExists(report)) { // gzipped or archived reports stay
+                    storage.reportDeleted(report);
+                }
+            } else {
+                pendingReports.put(report, path.toFile());
+            }
+        }
+
+        if (!key.reset()) {
+            folders.remove(key);
+        }
+    }
+
+    private void passQuietReports() {
+        if (pendingReports.isEmpty()) {
+            return;
+        }
+
+        final long threshold = System.currentTimeMillis() - QUIET_MILLIS;
+        final Iterator<Map.Entry<String, File>> iterator = pendingReports.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, File> entry = iterator.next();
+            final File file = entry.getValue();
+            if (!file.exists()) {
+                iterator.remove();
+            } else if (file.lastModified() < threshold) {
+                iterator.remove();
+                storage.reportArrived(entry.getKey());
+            }
+        }
+    }
+
+    private void passSegmentReports(final Path indexFile) throws IOException {
+        // index lines are appended after segment data is written, so complete lines refer to complete reports
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        for (final String report : ReportSegments.readReports(indexFile.toFile())) {
+            storage.reportArrived(report);
+        }
+    }
+
+    private void registerTree(final Path start, final boolean collectReports) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+                folders.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                if (!collectReports) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (file.getFileName().toString().endsWith(ReportSegments.INDEX_EXTENSION)) {
+                    passSegmentReports(file);
+                    return FileVisitResult.CONTINUE;
+                }
+                // files created in a new folder before it was registered
+                final String report = toReport(file);
+                if (report != null) {
+                    pendingReports.put(report, file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static String toReport(final Path path) {
+        return ReportJSONStorage.toReport(path.getFileName().toString());
+    }
+}
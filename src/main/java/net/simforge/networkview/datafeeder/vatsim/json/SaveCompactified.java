@@ -13,6 +13,7 @@ import net.simforge.networkview.core.report.ReportUtils;
 import net.simforge.networkview.core.report.compact.CompactifiedStorage;
 import net.simforge.networkview.core.report.persistence.*;
 import net.simforge.networkview.datafeeder.SettingNames;
+import org.slf4j.Logger;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
@@ -25,11 +26,16 @@ public class SaveCompactified extends BaseTask {
 
     private static final String ARG_SINGLE = "single";
     private static final String ARG_KEEP_DAYS = "keep-days";
+    private static final String ARG_PARALLEL_THRESHOLD = "parallel-threshold";
+    private static final String ARG_MAPPED_READ = "mapped-read";
+
+    private static final long ARRIVAL_WAIT_MILLIS = 5000;
 
     private final Network network;
     private final String storageRoot;
     private final int keepDays;
     private final boolean singleRun;
+    private final ReportJSONFile.ParseOptions parseOptions;
 
     private final ReportJSONStorage storage;
     private final CompactifiedStorage compactifiedStorage;
@@ -42,6 +48,10 @@ public class SaveCompactified extends BaseTask {
         this.storageRoot = Settings.get(SettingNames.storageRoot) != null ? Settings.get(SettingNames.storageRoot) : ReportJSONStorage.DEFAULT_STORAGE_ROOT;
         this.keepDays = Math.max(Integer.parseInt(properties.getProperty(ARG_KEEP_DAYS)), 1);
         this.singleRun = Boolean.parseBoolean(properties.getProperty(ARG_SINGLE, "false"));
+        this.parseOptions = ReportJSONFile.ParseOptions.COLUMNAR
+                .withParallelThreshold(Integer.parseInt(properties.getProperty(ARG_PARALLEL_THRESHOLD, "0")))
+                .withMappedRead(Boolean.parseBoolean(properties.getProperty(ARG_MAPPED_READ, "false")))
+                .withPublishing(true);
 
         this.storage = ReportJSONStorage.getStorage(storageRoot, network);
         this.compactifiedStorage = CompactifiedStorage.getStorage(storageRoot, network);
@@ -62,6 +72,14 @@ public class SaveCompactified extends BaseTask {
         logger.info("Storage root: " + storageRoot);
         logger.info("Keep days   : " + keepDays);
         logger.info("Single run  : " + singleRun);
+        logger.info("Parallel threshold: " + parseOptions.getParallelThreshold());
+        logger.info("Mapped read : " + parseOptions.isMappedRead());
+
+        try {
+            storage.startWatching();
+        } catch (final IOException e) {
+            throw new RuntimeException("Unable to watch storage " + storageRoot, e);
+        }
     }
 
     @Override
@@ -80,23 +98,17 @@ public class SaveCompactified extends BaseTask {
             if (lastProcessedReport == null) {
                 final LocalDateTime thresholdDt = JavaTime.nowUtc().minusDays(keepDays);
 
-                final List<String> all = storage.listAllReports();
+                final String firstReportAfter = storage.getFirstReportAfter(thresholdDt);
 
-                String currReport = null;
-                for (final String each : all) {
-                    currReport = each;
-                    final LocalDateTime currDt = ReportUtils.fromTimestampJava(currReport);
-                    if (currDt.isAfter(thresholdDt)) {
-                        break;
-                    }
-                }
-
-                nextReport = currReport;
+                nextReport = firstReportAfter != null ? firstReportAfter : storage.getLastReport();
                 if (nextReport == null) {
                     logger.info("Still no first report found");
                 }
             } else {
-                nextReport = storage.getNextReport(lastProcessedReport);
+                nextReport = storage.awaitNextReport(lastProcessedReport, ARRIVAL_WAIT_MILLIS);
+                if (nextReport == null) {
+                    setNextSleepTime(100L); // waiting for the next report is done in awaitNextReport
+                }
             }
 
             if (nextReport == null) {
@@ -116,6 +128,8 @@ public class SaveCompactified extends BaseTask {
                 setNextSleepTime(300000L); // 5 mins after exception
             }
 
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (final IOException e) {
             logger.error("I/O exception happened", e);
             throw new RuntimeException("I/O exception happened", e);
@@ -130,59 +144,31 @@ public class SaveCompactified extends BaseTask {
 
             logger.debug(ReportUtils.log(report) + " - Parsing started...");
 
-            ReportJSONFile reportFile = storage.loadReport(report);
+            ReportJSONFile reportFile = storage.loadReport(report, parseOptions);
             logger.debug(ReportUtils.log(report) + " -       Data splitted");
 
-            List<ReportJSONFile.ClientInfo> pilotInfos = reportFile.getPilotInfos();
+            PilotBatch pilots = reportFile.getPilotBatch();
             logger.debug(ReportUtils.log(report) + " -       Data parsed");
 
             final Report _report = new Report();
             _report.setId(System.currentTimeMillis() / 1000);
             _report.setReport(report);
 
-            savePilotPositions(_report, pilotInfos);
+            savePilotPositions(_report, pilots);
 
             logger.info(ReportUtils.log(report) + " -       Compactified report file saved");
+            logger.debug(ReportUtils.log(report) + " -       Strings dictionary: " + ReportJSONFile.getStrings());
+            logger.debug(ReportUtils.log(report) + " -       Validation: " + reportFile.getValidation());
 
         } finally {
             BM.stop();
         }
     }
 
-    private void savePilotPositions(final Report report, final List<ReportJSONFile.ClientInfo> pilotInfos) throws IOException {
+    private void savePilotPositions(final Report report, final PilotBatch pilots) throws IOException {
         BM.start("savePilotPositions");
         try {
-            final List<Position> positions = new ArrayList<>();
-
-            for (final ReportJSONFile.ClientInfo pilotInfo : pilotInfos) {
-                try {
-                    final ReportPilotPosition p = new ReportPilotPosition();
-                    p.setReport(report);
-                    p.setPilotNumber(pilotInfo.getCid());
-                    p.setCallsign(pilotInfo.getCallsign());
-                    p.setLatitude(pilotInfo.getLatitude());
-                    p.setLongitude(pilotInfo.getLongitude());
-                    p.setAltitude(pilotInfo.getAltitude());
-                    p.setGroundspeed(pilotInfo.getGroundspeed());
-                    p.setHeading(pilotInfo.getHeading());
-                    p.setFpAircraft(pilotInfo.getPlannedAircraft());
-                    p.setFpOrigin(pilotInfo.getPlannedDepAirport());
-                    p.setFpDestination(pilotInfo.getPlannedDestAirport());
-                    p.setParsedRegNo(ParsingLogics.parseRegNo(p,
-                            pilotInfo.getPlannedRemarks() != null
-                            ? pilotInfo.getPlannedRemarks().trim()
-                            : null));
-                    p.setQnhMb(pilotInfo.getQnhMb());
-                    p.setOnGround(pilotInfo.isOnGround());
-
-                    final Position pp = Position.create(p);
-                    positions.add(pp);
-                } catch (final Exception e) {
-                    final String msg = "Error on parsing data for PID " + pilotInfo.getCid();
-                    logger.error(msg, e);
-                    throw new RuntimeException(msg, e);
-                }
-            }
+            final List<Position> positions = toPositions(report, pilots, logger);
 
             logger.debug(ReportUtils.log(report) + " -       Pilot positions inserted");
 
@@ -191,4 +177,41 @@ public class SaveCompactified extends BaseTask {
             BM.stop();
         }
     }
+
+    static List<Position> toPositions(final Report report, final PilotBatch pilots, final Logger logger) {
+        final List<Position> positions = new ArrayList<>(pilots.size());
+
+        for (int i = 0; i < pilots.size(); i++) {
+            try {
+                final String plannedRemarks = pilots.getPlannedRemarks().get(i);
+
+                final ReportPilotPosition p = new ReportPilotPosition();
+                p.setReport(report);
+                p.setPilotNumber(pilots.getCid(i));
+                p.setCallsign(pilots.getCallsigns().get(i));
+                p.setLatitude(pilots.getLatitude(i));
+                p.setLongitude(pilots.getLongitude(i));
+                p.setAltitude(pilots.getAltitude(i));
+                p.setGroundspeed(pilots.getGroundspeed(i));
+                p.setHeading(pilots.getHeading(i));
+                p.setFpAircraft(pilots.getPlannedAircrafts().get(i));
+                p.setFpOrigin(pilots.getPlannedDepAirports().get(i));
+                p.setFpDestination(pilots.getPlannedDestAirports().get(i));
+                p.setParsedRegNo(ParsingLogics.parseRegNo(p,
+                        plannedRemarks != null
+                        ? plannedRemarks.trim()
+                        : null));
+                p.setQnhMb(pilots.getQnhMb(i));
+
+                final Position pp = Position.create(p);
+                positions.add(pp);
+            } catch (final Exception e) {
+                final String msg = "Error on parsing data for PID " + pilots.getCid(i);
+                logger.error(msg, e);
+                throw new RuntimeException(msg, e);
+            }
+        }
+
+        return positions;
+    }
 }
@@ -0,0 +1,104 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded thread-safe interning dictionary. Values repeating from report to report are resolved to one canonical instance.
+ * When the dictionary is full, entries which were not used since the previous sweep are evicted (clock-like second chance).
+ * If nothing can be evicted the value is returned as is, without being added.
+ */
+public class StringDictionary {
+    private final int maxSize;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public StringDictionary(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Max size should be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        Entry entry = entries.get(value);
+        if (entry != null) {
+            entry.used = true;
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+
+        if (entries.size() >= maxSize) {
+            sweep();
+            if (entries.size() >= maxSize) {
+                return value;
+            }
+        }
+
+        entry = entries.putIfAbsent(value, new Entry(value));
+        return entry != null ? entry.value : value;
+    }
+
+    private synchronized void sweep() {
+        if (entries.size() < maxSize) {
+            return; // another thread has already swept
+        }
+
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.used) {
+                entry.used = false;
+            } else {
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "size " + size() + "/" + maxSize + ", hits " + getHits() + ", misses " + getMisses() + ", evictions " + getEvictions();
+    }
+
+    private static class Entry {
+        private final String value;
+        private volatile boolean used;
+
+        private Entry(String value) {
+            this.value = value;
+            this.used = true; // survives the first sweep after being added
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.commons.legacy.BM;
+import net.simforge.commons.legacy.misc.Settings;
+import net.simforge.commons.misc.JavaTime;
+import net.simforge.commons.runtime.BaseTask;
+import net.simforge.commons.runtime.RunningMarker;
+import net.simforge.commons.runtime.ThreadMonitor;
+import net.simforge.networkview.core.Network;
+import net.simforge.networkview.core.report.ReportUtils;
+import net.simforge.networkview.datafeeder.SettingNames;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replacement of {@link Download} for scale testing, it stores reports of {@link SyntheticFeed} instead of downloaded ones.
+ * With backfill it first generates the given number of past reports, so the compaction and archive tasks have data to process.
+ */
+public class SyntheticDownload extends BaseTask {
+
+    private static final String ARG_PERIOD = "period";
+    private static final String ARG_PILOTS = "pilots";
+    private static final String ARG_SEED = "seed";
+    private static final String ARG_INVALID_RATE = "invalid-rate";
+    private static final String ARG_BACKFILL = "backfill";
+
+    private final Network network = Network.VATSIM;
+    private final String storageRoot;
+    private final int period;
+    private final int pilots;
+    private final long seed;
+    private final double invalidRate;
+    private final int backfill;
+
+    private final ReportJSONStorage storage;
+    private SyntheticFeed feed;
+
+    public SyntheticDownload(final Properties properties) {
+        super("SynthDownload-VATSIM-JSON");
+
+        this.storageRoot = Settings.get(SettingNames.storageRoot) != null ? Settings.get(SettingNames.storageRoot) : ReportJSONStorage.DEFAULT_STORAGE_ROOT;
+        this.period = Math.max(Integer.parseInt(properties.getProperty(ARG_PERIOD, "15")), 1);
+        this.pilots = Integer.parseInt(properties.getProperty(ARG_PILOTS, "2000"));
+        this.seed = Long.parseLong(properties.getProperty(ARG_SEED, "1"));
+        this.invalidRate = Double.parseDouble(properties.getProperty(ARG_INVALID_RATE, "0.0001"));
+        this.backfill = Math.max(Integer.parseInt(properties.getProperty(ARG_BACKFILL, "0")), 0);
+
+        this.storage = ReportJSONStorage.getStorage(storageRoot, network);
+
+        setBaseSleepTime(period * 1000L);
+    }
+
+    @Override
+    protected void startup() {
+        super.startup();
+
+        BM.setLoggingPeriod(TimeUnit.HOURS.toMillis(1));
+
+        RunningMarker.lock(getTaskName());
+
+        logger.info("Network     : " + network);
+        logger.info("Storage root: " + storageRoot);
+        logger.info("Period      : " + period + " secs");
+        logger.info("Pilots      : " + pilots);
+        logger.info("Seed        : " + seed);
+        logger.info("Invalid rate: " + invalidRate);
+        logger.info("Backfill    : " + backfill);
+
+        final String lastReport;
+        try {
+            lastReport = storage.getLastReport();
+        } catch (final IOException e) {
+            throw new RuntimeException("I/O error happened", e);
+        }
+
+        final Duration interval = Duration.ofSeconds(period);
+        final LocalDateTime start = lastReport != null
+                ? ReportUtils.fromTimestampJava(lastReport).plus(interval)
+                : JavaTime.nowUtc().minus(interval.multipliedBy(backfill));
+
+        feed = new SyntheticFeed(seed, pilots, start, interval).withInvalidRate(invalidRate);
+    }
+
+    @Override
+    protected void shutdown() {
+        super.shutdown();
+    }
+
+    @Override
+    protected void process() {
+        BM.start("process");
+        try {
+            // catches up with current time when backfilling or after a pause
+            final LocalDateTime now = JavaTime.nowUtc();
+            while (!feed.getTime().isAfter(now)) {
+                ThreadMonitor.alive();
+
+                final String data = feed.next();
+                storage.saveReport(feed.getReport(), data);
+                logger.info(ReportUtils.log(feed.getReport()) + " - Synthetic report saved");
+            }
+        } catch (final IOException e) {
+            logger.error("I/O exception happened", e);
+            throw new RuntimeException("I/O exception happened", e);
+        } finally {
+            BM.stop();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generator of VATSIM v3 feeds for scale testing. The same seed, pilot count and start time give the same sequence of reports.
+ * Every pilot flies between two airports and is replaced by a new pilot after arrival, so the count of pilots is constant.
+ * Values breaking {@link ValidationRule} checks are written with configurable per-pilot rates, the pilot state itself stays valid.
+ */
+public class SyntheticFeed {
+
+    public static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final DateTimeFormatter ISO_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss'.0000000Z'");
+
+    private static final String[] AIRPORTS = {
+            "EGLL", "EHAM", "LFPG", "EDDF", "LEMD", "LIRF", "UUEE", "EKCH", "LOWW", "LSZH",
+            "KJFK", "KLAX", "KORD", "KATL", "CYYZ", "SBGR", "OMDB", "VHHH", "RJTT", "YSSY"};
+    private static final double[][] AIRPORT_COORDS = {
+            {51.4775, -0.461389}, {52.308056, 4.764167}, {49.009722, 2.547778}, {50.033333, 8.570556}, {40.472222, -3.560833},
+            {41.800278, 12.238889}, {55.972778, 37.414722}, {55.617917, 12.655972}, {48.110278, 16.569722}, {47.464722, 8.549167},
+            {40.639722, -73.778889}, {33.9425, -118.408056}, {41.978611, -87.904722}, {33.636667, -84.428056}, {43.676667, -79.630556},
+            {-23.435556, -46.473056}, {25.252778, 55.364444}, {22.308889, 113.914444}, {35.553333, 139.781111}, {-33.946111, 151.177222}};
+    private static final String[] AIRCRAFTS = {"B738", "A320", "A20N", "B77W", "A359", "B744", "C172", "E190", "A321", "B789"};
+    private static final String[] AIRLINES = {"BAW", "KLM", "AFR", "DLH", "AAL", "UAE", "AFL", "IBE", "RYR", "EZY"};
+    private static final String[] SERVERS = {"UK-1", "USA-EAST", "USA-WEST", "GERMANY", "CANADA", "SINGAPORE"};
+
+    private static final double CLIMB_PART = 0.1;
+
+    private final Random random;
+    private final Duration interval;
+    private final Map<ValidationRule, Double> invalidRates = new EnumMap<>(ValidationRule.class);
+
+    private final Pilot[] pilots;
+    private int nextCid = 1000000;
+    private LocalDateTime time;
+    private String report;
+
+    public SyntheticFeed(final long seed, final int pilotCount, final LocalDateTime start, final Duration interval) {
+        if (pilotCount < 0) {
+            throw new IllegalArgumentException("Pilot count should not be negative");
+        }
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval should be positive");
+        }
+
+        this.random = new Random(seed);
+        this.interval = interval;
+        this.time = start.withNano(0);
+
+        this.pilots = new Pilot[pilotCount];
+        for (int i = 0; i < pilotCount; i++) {
+            pilots[i] = newPilot(random.nextDouble());
+        }
+    }
+
+    /**
+     * Sets the same rate of invalid values for all validation rules.
+     */
+    public SyntheticFeed withInvalidRate(final double rate) {
+        for (final ValidationRule rule : ValidationRule.values()) {
+            withInvalidRate(rule, rate);
+        }
+        return this;
+    }
+
+    /**
+     * Sets the probability of a pilot to get invalid value for the rule in each report.
+     */
+    public SyntheticFeed withInvalidRate(final ValidationRule rule, final double rate) {
+        if (rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Rate should be in range [0, 1]");
+        }
+        invalidRates.put(rule, rate);
+        return this;
+    }
+
+    public int getPilotCount() {
+        return pilots.length;
+    }
+
+    /**
+     * Timestamp of the next report to generate.
+     */
+    public LocalDateTime getTime() {
+        return time;
+    }
+
+    /**
+     * Timestamp of the last generated report, null before the first report.
+     */
+    public String getReport() {
+        return report;
+    }
+
+    /**
+     * Generates the report for the current time, then moves pilots to the time of the next report.
+     */
+    public String next() {
+        report = TIMESTAMP.format(time);
+
+        final String data = write();
+
+        final double seconds = interval.getSeconds();
+        for (int i = 0; i < pilots.length; i++) {
+            final Pilot pilot = pilots[i];
+            if (pilot.groundReports > 0) {
+                pilot.groundReports--;
+                continue;
+            }
+            pilot.progress += pilot.cruiseSpeed * seconds / 3600 / pilot.distance;
+            if (pilot.progress >= 1) {
+                pilots[i] = newPilot(0);
+            }
+        }
+        time = time.plus(interval);
+
+        return data;
+    }
+
+    private Pilot newPilot(final double progress) {
+        final Pilot pilot = new Pilot();
+        pilot.cid = nextCid++;
+        pilot.name = "Pilot " + pilot.cid;
+        pilot.callsign = AIRLINES[random.nextInt(AIRLINES.length)] + (10 + random.nextInt(9990));
+        pilot.server = SERVERS[random.nextInt(SERVERS.length)];
+        pilot.aircraft = AIRCRAFTS[random.nextInt(AIRCRAFTS.length)];
+        pilot.departure = random.nextInt(AIRPORTS.length);
+        do {
+            pilot.arrival = random.nextInt(AIRPORTS.length);
+        } while (pilot.arrival == pilot.departure);
+        pilot.cruiseSpeed = 250 + random.nextInt(240);
+        pilot.cruiseAltitude = 10000 + random.nextInt(30) * 1000;
+        pilot.qnhMb = 990 + random.nextInt(40);
+        pilot.transponder = String.format("%04o", random.nextInt(4096));
+        pilot.logonTime = time;
+
+        final double[] from = AIRPORT_COORDS[pilot.departure];
+        final double[] to = AIRPORT_COORDS[pilot.arrival];
+        final double dLat = to[0] - from[0];
+        final double dLon = (to[1] - from[1]) * Math.cos(Math.toRadians((from[0] + to[0]) / 2));
+        pilot.distance = Math.max(60 * Math.sqrt(dLat * dLat + dLon * dLon), 50);
+        pilot.heading = ((int) Math.round(Math.toDegrees(Math.atan2(dLon, dLat))) + 360) % 360;
+
+        pilot.progress = progress;
+        pilot.groundReports = progress == 0 ? 1 + random.nextInt(20) : 0;
+        return pilot;
+    }
+
+    private String write() {
+        final StringWriter out = new StringWriter(pilots.length * 1200 + 1024);
+        try (final JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject();
+
+            writer.name("general").beginObject();
+            writer.name("version").value(3);
+            writer.name("reload").value(1);
+            writer.name("update").value(report);
+            writer.name("update_timestamp").value(ISO_TIMESTAMP.format(time));
+            writer.name("connected_clients").value(pilots.length);
+            writer.name("unique_users").value(pilots.length);
+            writer.endObject();
+
+            writer.name("pilots").beginArray();
+            for (final Pilot pilot : pilots) {
+                writePilot(writer, pilot);
+            }
+            writer.endArray();
+
+            writer.name("controllers").beginArray().endArray();
+            writer.name("atis").beginArray().endArray();
+            writer.name("servers").beginArray().endArray();
+            writer.name("prefiles").beginArray().endArray();
+
+            writer.endObject();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private void writePilot(final JsonWriter writer, final Pilot pilot) throws IOException {
+        final double[] from = AIRPORT_COORDS[pilot.departure];
+        final double[] to = AIRPORT_COORDS[pilot.arrival];
+        final double latitude = round6(from[0] + (to[0] - from[0]) * pilot.progress);
+        final double longitude = round6(from[1] + (to[1] - from[1]) * pilot.progress);
+
+        final boolean onGround = pilot.groundReports > 0;
+        final double climb = Math.min(1, Math.min(pilot.progress, 1 - pilot.progress) / CLIMB_PART);
+        final int altitude = onGround ? 0 : (int) Math.round(pilot.cruiseAltitude * climb);
+        final int groundspeed = onGround ? 0 : (int) Math.round(pilot.cruiseSpeed * (0.6 + 0.4 * climb));
+
+        writer.beginObject();
+
+        if (!isInvalid(ValidationRule.CID_MISSING)) {
+            writer.name("cid").value(pilot.cid);
+        }
+        writer.name("name").value(pilot.name);
+        writer.name("callsign").value(isInvalid(ValidationRule.CALLSIGN_TOO_LONG) ? pilot.callsign + "-TOO-LONG" : pilot.callsign);
+        writer.name("server").value(pilot.server);
+        writer.name("pilot_rating").value(0);
+
+        writeCoord(writer, "latitude", latitude, 90, ValidationRule.LATITUDE_MISSING,
+                ValidationRule.LATITUDE_TOO_HIGH_SCALE, ValidationRule.LATITUDE_TOO_SMALL, ValidationRule.LATITUDE_TOO_GREAT);
+        writeCoord(writer, "longitude", longitude, 180, ValidationRule.LONGITUDE_MISSING,
+                ValidationRule.LONGITUDE_TOO_HIGH_SCALE, ValidationRule.LONGITUDE_TOO_SMALL, ValidationRule.LONGITUDE_TOO_GREAT);
+
+        writeInt(writer, "altitude", altitude, -20000, 2000000,
+                ValidationRule.ALTITUDE_MISSING, ValidationRule.ALTITUDE_TOO_SMALL, ValidationRule.ALTITUDE_TOO_GREAT);
+        writeInt(writer, "groundspeed", groundspeed, -10, 40000,
+                ValidationRule.GROUNDSPEED_MISSING, ValidationRule.GROUNDSPEED_NEGATIVE, ValidationRule.GROUNDSPEED_TOO_GREAT);
+        writer.name("transponder").value(pilot.transponder);
+        writeInt(writer, "heading", pilot.heading, -10, 400,
+                ValidationRule.HEADING_MISSING, ValidationRule.HEADING_NEGATIVE, ValidationRule.HEADING_TOO_GREAT);
+
+        writer.name("qnh_i_hg").value(Math.round(pilot.qnhMb * 0.02953 * 100) / 100.0);
+        if (!isInvalid(ValidationRule.QNH_MISSING)) {
+            writer.name("qnh_mb").value(isInvalid(ValidationRule.QNH_OUT_OF_RANGE) ? 30000 + pilot.qnhMb : pilot.qnhMb);
+        }
+
+        writer.name("flight_plan").beginObject();
+        writer.name("flight_rules").value("I");
+        writer.name("aircraft").value(isInvalid(ValidationRule.AIRCRAFT_TOO_LONG)
+                ? pilot.aircraft + "/M-SDE2E3FGHIJ1J3J4J5M1RWXY/LB1D1-TOO-LONG"
+                : pilot.aircraft + "/M-SDE2E3FGHIRWY/LB1");
+        writer.name("aircraft_short").value(pilot.aircraft);
+        writer.name("departure").value(AIRPORTS[pilot.departure] + (isInvalid(ValidationRule.DEPARTURE_TOO_LONG) ? "X" : ""));
+        writer.name("arrival").value(AIRPORTS[pilot.arrival] + (isInvalid(ValidationRule.ARRIVAL_TOO_LONG) ? "X" : ""));
+        writer.name("alternate").value(AIRPORTS[(pilot.arrival + 1) % AIRPORTS.length]);
+        writer.name("cruise_tas").value(String.valueOf(pilot.cruiseSpeed));
+        writer.name("altitude").value(String.valueOf(pilot.cruiseAltitude));
+        final String remarks = "PBN/A1B1C1D1S2 REG/N" + (pilot.cid % 1000) + "SF OPR/" + pilot.callsign.substring(0, 3) + " /V/";
+        writer.name("remarks").value(isInvalid(ValidationRule.REMARKS_TOO_LONG) ? pad(remarks, 320) : remarks);
+        writer.name("route").value("DCT");
+        writer.endObject();
+
+        writer.name("logon_time").value(ISO_TIMESTAMP.format(pilot.logonTime));
+        writer.name("last_updated").value(ISO_TIMESTAMP.format(time));
+
+        writer.endObject();
+    }
+
+    private void writeCoord(final JsonWriter writer, final String name, final double value, final double limit, final ValidationRule missingRule,
+                            final ValidationRule tooHighScaleRule, final ValidationRule tooSmallRule, final ValidationRule tooGreatRule) throws IOException {
+        if (isInvalid(missingRule)) {
+            writer.name(name).nullValue();
+            return;
+        }
+        double coord = value;
+        if (isInvalid(tooSmallRule)) {
+            coord = -limit - 0.5;
+        } else if (isInvalid(tooGreatRule)) {
+            coord = limit + 0.5;
+        }
+        if (isInvalid(tooHighScaleRule)) {
+            coord += coord < 0 ? 1.23e-7 : -1.23e-7;
+        }
+        writer.name(name).value(coord);
+    }
+
+    private void writeInt(final JsonWriter writer, final String name, final int value, final int tooSmallValue, final int tooGreatValue,
+                          final ValidationRule missingRule, final ValidationRule tooSmallRule, final ValidationRule tooGreatRule) throws IOException {
+        if (isInvalid(missingRule)) {
+            return;
+        }
+        if (isInvalid(tooSmallRule)) {
+            writer.name(name).value(tooSmallValue);
+        } else if (isInvalid(tooGreatRule)) {
+            writer.name(name).value(tooGreatValue);
+        } else {
+            writer.name(name).value(value);
+        }
+    }
+
+    private boolean isInvalid(final ValidationRule rule) {
+        final Double rate = invalidRates.get(rule);
+        return rate != null && rate > 0 && random.nextDouble() < rate;
+    }
+
+    private static double round6(final double value) {
+        return Math.round(value * 1e6) / 1e6;
+    }
+
+    private static String pad(final String value, final int length) {
+        final StringBuilder sb = new StringBuilder(length).append(value);
+        while (sb.length() < length) {
+            sb.append(" RMK/SYNTHETIC");
+        }
+        return sb.toString();
+    }
+
+    private static class Pilot {
+        private int cid;
+        private String name;
+        private String callsign;
+        private String server;
+        private String aircraft;
+        private int departure;
+        private int arrival;
+        private int cruiseSpeed;
+        private int cruiseAltitude;
+        private int heading;
+        private int qnhMb;
+        private String transponder;
+        private LocalDateTime logonTime;
+        private double distance;
+        private double progress;
+        private int groundReports;
+    }
+}
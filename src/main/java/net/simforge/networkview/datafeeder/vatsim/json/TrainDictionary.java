@@ -0,0 +1,131 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.commons.legacy.BM;
+import net.simforge.commons.legacy.misc.Settings;
+import net.simforge.commons.runtime.BaseTask;
+import net.simforge.commons.runtime.RunningMarker;
+import net.simforge.commons.runtime.ThreadMonitor;
+import net.simforge.networkview.core.Network;
+import net.simforge.networkview.core.report.ReportUtils;
+import net.simforge.networkview.datafeeder.SettingNames;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Trains a new version of {@link DictionaryCodec} dictionary on reports of the last days, when the current one is older than retrain period.
+ * Samples are spread evenly over the days, so the dictionary is not tied to pilots online at one moment.
+ */
+public class TrainDictionary extends BaseTask {
+
+    private static final String ARG_SAMPLES = "samples";
+    private static final String ARG_SAMPLE_DAYS = "sample-days";
+    private static final String ARG_RETRAIN_DAYS = "retrain-days";
+    private static final String ARG_SIZE = "size";
+
+    private static final DateTimeFormatter yyyyMMddHHmmss = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final Network network = Network.VATSIM;
+    private final String storageRoot;
+    private final int samples;
+    private final int sampleDays;
+    private final int retrainDays;
+    private final int size;
+
+    private final ReportJSONStorage storage;
+
+    public TrainDictionary(final Properties properties) {
+        super("TrainDict-VATSIM-JSON");
+
+        this.storageRoot = Settings.get(SettingNames.storageRoot) != null ? Settings.get(SettingNames.storageRoot) : ReportJSONStorage.DEFAULT_STORAGE_ROOT;
+        this.samples = Math.max(Integer.parseInt(properties.getProperty(ARG_SAMPLES, "50")), 2);
+        this.sampleDays = Math.max(Integer.parseInt(properties.getProperty(ARG_SAMPLE_DAYS, "7")), 1);
+        this.retrainDays = Math.max(Integer.parseInt(properties.getProperty(ARG_RETRAIN_DAYS, "30")), 1);
+        this.size = Math.min(Integer.parseInt(properties.getProperty(ARG_SIZE, String.valueOf(ReportDictionaries.MAX_SIZE))), ReportDictionaries.MAX_SIZE);
+
+        this.storage = ReportJSONStorage.getStorage(storageRoot, network);
+
+        setBaseSleepTime(TimeUnit.HOURS.toMillis(6));
+    }
+
+    @Override
+    protected void startup() {
+        super.startup();
+
+        BM.setLoggingPeriod(TimeUnit.HOURS.toMillis(1));
+
+        RunningMarker.lock(getTaskName());
+
+        logger.info("Network     : " + network);
+        logger.info("Storage root: " + storageRoot);
+        logger.info("Samples     : " + samples);
+        logger.info("Sample days : " + sampleDays);
+        logger.info("Retrain days: " + retrainDays);
+        logger.info("Size        : " + size);
+    }
+
+    @Override
+    protected void shutdown() {
+        super.shutdown();
+    }
+
+    @Override
+    protected void process() {
+        BM.start("process");
+        try {
+            final ReportDictionaries dictionaries = storage.getDictionaries();
+            final int currentVersion = dictionaries.getCurrentVersion();
+            if (currentVersion != 0) {
+                final long age = System.currentTimeMillis() - dictionaries.getFile(currentVersion).lastModified();
+                if (age < TimeUnit.DAYS.toMillis(retrainDays)) {
+                    return;
+                }
+            }
+
+            final String lastReport = storage.getLastReport();
+            if (lastReport == null) {
+                logger.warn("No report found");
+                return;
+            }
+
+            // the window is listed from the file system, so it has reports saved by other processes after the index was built
+            final String fromReport = yyyyMMddHHmmss.format(ReportUtils.fromTimestampJava(lastReport).minusDays(sampleDays));
+            final List<String> reports = storage.listReports(fromReport, null).collect(Collectors.toList());
+            if (reports.size() < 2) {
+                logger.warn("Not enough reports to train dictionary");
+                return;
+            }
+
+            final List<byte[]> sampleData = new ArrayList<>();
+            final int step = Math.max(reports.size() / samples, 1);
+            int i = 0;
+            for (final String report : reports) {
+                if (i++ % step != 0) {
+                    continue;
+                }
+                ThreadMonitor.alive();
+
+                final ByteBuffer buffer = storage.mapReport(report);
+                final byte[] data = new byte[buffer.remaining()];
+                buffer.get(data);
+                sampleData.add(data);
+            }
+
+            final byte[] dictionary = ReportDictionaries.train(sampleData, size);
+            final int version = dictionaries.save(dictionary);
+
+            logger.info("Dictionary version {} trained on {} reports, size {} bytes", version, sampleData.size(), dictionary.length);
+        } catch (final IOException e) {
+            logger.error("I/O exception happened", e);
+            throw new RuntimeException("I/O exception happened", e);
+        } finally {
+            BM.stop();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Default validation sink of a report. It counts violations per rule and keeps first values of each rule as a sample.
+ * When entries are kept, violations are recorded in compact form and {@link ReportJSONFile.LogEntry} objects
+ * are created only on {@link #getEntries()} call.
+ */
+public class ValidationLog implements ValidationSink {
+    public static final int SAMPLE_SIZE = 5;
+
+    private static final String CLIENTS = "Clients";
+
+    private static final ValidationRule[] RULES = ValidationRule.values();
+    private static final LongAdder[] totals = new LongAdder[RULES.length];
+
+    static {
+        for (int i = 0; i < totals.length; i++) {
+            totals[i] = new LongAdder();
+        }
+    }
+
+    private static final byte NO_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte INT_VALUE = 2;
+    private static final byte DOUBLE_VALUE = 3;
+
+    private final int[] counts = new int[RULES.length];
+    private final String[][] samples = new String[RULES.length][];
+
+    private final boolean keepEntries;
+    private int size;
+    private ValidationRule[] entryRules;
+    private String[] entryObjects;
+    private byte[] entryValueTypes;
+    private String[] entryStrings;
+    private double[] entryNumbers;
+    private List<ReportJSONFile.LogEntry> entries;
+
+    public ValidationLog(boolean keepEntries) {
+        this.keepEntries = keepEntries;
+        if (keepEntries) {
+            allocate(64);
+        }
+    }
+
+    @Override
+    public void report(ValidationRule rule, String callsign, String value) {
+        count(rule);
+        if (needsSample(rule)) {
+            setSample(rule, counts[rule.ordinal()] - 1, value);
+        }
+        if (keepEntries) {
+            addEntry(rule, callsign, value != null ? STRING_VALUE : NO_VALUE, value, 0);
+        }
+    }
+
+    @Override
+    public void report(ValidationRule rule, String callsign, int value) {
+        count(rule);
+        if (needsSample(rule)) {
+            setSample(rule, counts[rule.ordinal()] - 1, String.valueOf(value));
+        }
+        if (keepEntries) {
+            addEntry(rule, callsign, INT_VALUE, null, value);
+        }
+    }
+
+    @Override
+    public void report(ValidationRule rule, String callsign, double value) {
+        count(rule);
+        if (needsSample(rule)) {
+            setSample(rule, counts[rule.ordinal()] - 1, String.valueOf(value));
+        }
+        if (keepEntries) {
+            addEntry(rule, callsign, DOUBLE_VALUE, null, value);
+        }
+    }
+
+    public boolean isKeepingEntries() {
+        return keepEntries;
+    }
+
+    public int getCount(ValidationRule rule) {
+        return counts[rule.ordinal()];
+    }
+
+    public int getTotalCount() {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    public List<String> getSample(ValidationRule rule) {
+        String[] sample = samples[rule.ordinal()];
+        if (sample == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(sample).subList(0, Math.min(counts[rule.ordinal()], SAMPLE_SIZE)));
+    }
+
+    public List<ReportJSONFile.LogEntry> getEntries() {
+        if (!keepEntries) {
+            throw new IllegalStateException("Log entries are not kept, see ReportJSONFile.ParseOptions.withLog(boolean)");
+        }
+
+        if (entries == null) {
+            List<ReportJSONFile.LogEntry> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                String value = formatValue(i);
+                list.add(new ReportJSONFile.LogEntry(CLIENTS, entryObjects[i], entryRules[i].formatMessage(value), value));
+            }
+            entries = Collections.unmodifiableList(list);
+        }
+        return entries;
+    }
+
+    /**
+     * Appends violations of another log, used to join logs of pilot chunks in their order.
+     */
+    void append(ValidationLog other) {
+        for (int i = 0; i < RULES.length; i++) {
+            for (int j = 0; counts[i] + j < SAMPLE_SIZE && j < Math.min(other.counts[i], SAMPLE_SIZE); j++) {
+                setSample(RULES[i], counts[i] + j, other.samples[i][j]);
+            }
+            counts[i] += other.counts[i];
+        }
+
+        if (keepEntries) {
+            for (int i = 0; i < other.size; i++) {
+                addEntry(other.entryRules[i], other.entryObjects[i], other.entryValueTypes[i], other.entryStrings[i], other.entryNumbers[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds counts of this log to the process-wide totals.
+     */
+    void publish() {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                totals[i].add(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Process-wide violation counts of reports parsed with {@link ReportJSONFile.ParseOptions#withPublishing(boolean)}.
+     */
+    public static Map<ValidationRule, Long> getTotals() {
+        Map<ValidationRule, Long> result = new EnumMap<>(ValidationRule.class);
+        for (ValidationRule rule : RULES) {
+            result.put(rule, totals[rule.ordinal()].sum());
+        }
+        return result;
+    }
+
+    private void count(ValidationRule rule) {
+        counts[rule.ordinal()]++;
+    }
+
+    private boolean needsSample(ValidationRule rule) {
+        // count is already incremented for the current value
+        return counts[rule.ordinal()] <= SAMPLE_SIZE;
+    }
+
+    private void setSample(ValidationRule rule, int index, String value) {
+        String[] sample = samples[rule.ordinal()];
+        if (sample == null) {
+            sample = new String[SAMPLE_SIZE];
+            samples[rule.ordinal()] = sample;
+        }
+        sample[index] = value;
+    }
+
+    private void addEntry(ValidationRule rule, String object, byte valueType, String string, double number) {
+        if (size == entryRules.length) {
+            allocate(size * 2);
+        }
+        entryRules[size] = rule;
+        entryObjects[size] = object;
+        entryValueTypes[size] = valueType;
+        entryStrings[size] = string;
+        entryNumbers[size] = number;
+        size++;
+        entries = null;
+    }
+
+    private void allocate(int capacity) {
+        entryRules = entryRules != null ? Arrays.copyOf(entryRules, capacity) : new ValidationRule[capacity];
+        entryObjects = entryObjects != null ? Arrays.copyOf(entryObjects, capacity) : new String[capacity];
+        entryValueTypes = entryValueTypes != null ? Arrays.copyOf(entryValueTypes, capacity) : new byte[capacity];
+        entryStrings = entryStrings != null ? Arrays.copyOf(entryStrings, capacity) : new String[capacity];
+        entryNumbers = entryNumbers != null ? Arrays.copyOf(entryNumbers, capacity) : new double[capacity];
+    }
+
+    private String formatValue(int index) {
+        switch (entryValueTypes[index]) {
+            case STRING_VALUE:
+                return entryStrings[index];
+            case INT_VALUE:
+                return String.valueOf((int) entryNumbers[index]);
+            case DOUBLE_VALUE:
+                return String.valueOf(entryNumbers[index]);
+            default:
+                return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (ValidationRule rule : RULES) {
+            int count = counts[rule.ordinal()];
+            if (count == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(rule).append(' ').append(count).append(' ').append(getSample(rule));
+        }
+        return sb.length() > 0 ? sb.toString() : "no violations";
+    }
+}
@@ -0,0 +1,62 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+/**
+ * Checks applied to pilot values of VATSIM JSON report, one constant per check and field.
+ * Messages are the ones stored in the report log, some of them carry the value as the old log did.
+ */
+public enum ValidationRule {
+    CALLSIGN_TOO_LONG("callsign", "Callsign is too long"),
+    CID_MISSING("cid", "CID is incorrect"),
+    LATITUDE_MISSING("latitude", "Could not parse latitude value, pilot is skipped"),
+    LATITUDE_TOO_HIGH_SCALE("latitude", "Latitude has too high scale, limiting to scale 6"),
+    LATITUDE_TOO_GREAT("latitude", "Latitude is greater than 90.0"),
+    LATITUDE_TOO_SMALL("latitude", "Latitude is lower than -90.0"),
+    LONGITUDE_MISSING("longitude", "Could not parse longitude value, pilot is skipped"),
+    LONGITUDE_TOO_HIGH_SCALE("longitude", "Longitude has too high scale, limiting to scale 6"),
+    LONGITUDE_TOO_GREAT("longitude", "Longitude is greater than 180.0"),
+    LONGITUDE_TOO_SMALL("longitude", "Longitude is lower than -180.0"),
+    ALTITUDE_MISSING("altitude", "Could not parse altitude value"),
+    ALTITUDE_TOO_SMALL("altitude", "Altitude is too small to store in DB. Restricted to -10000."),
+    ALTITUDE_TOO_GREAT("altitude", "Altitude is too great to store in DB. Restricted to 1000000."),
+    GROUNDSPEED_MISSING("groundspeed", "Could not parse groundspeed value"),
+    GROUNDSPEED_NEGATIVE("groundspeed", "Groundspeed is negative. Restricted to 0."),
+    GROUNDSPEED_TOO_GREAT("groundspeed", "Groundspeed is too great to store in DB. Restricted to 32767."),
+    HEADING_MISSING("heading", "Could not parse heading value"),
+    HEADING_NEGATIVE("heading", "Heading is negative, reset to 0"),
+    HEADING_TOO_GREAT("heading", "Heading is too great, reset to 0"),
+    QNH_MISSING("qnh_mb", "QNH Mb is incorrect", true),
+    QNH_OUT_OF_RANGE("qnh_mb", "QNH MB is out of range"),
+    AIRCRAFT_TOO_LONG("flight_plan.aircraft", "Aircraft is too long"),
+    DEPARTURE_TOO_LONG("flight_plan.departure", "Departure ICAO is too long"),
+    ARRIVAL_TOO_LONG("flight_plan.arrival", "Destination ICAO is too long"),
+    REMARKS_TOO_LONG("flight_plan.remarks", "Remarks is too long");
+
+    private final String field;
+    private final String message;
+    private final boolean valueInMessage;
+
+    ValidationRule(String field, String message) {
+        this(field, message, false);
+    }
+
+    ValidationRule(String field, String message, boolean valueInMessage) {
+        this.field = field;
+        this.message = message;
+        this.valueInMessage = valueInMessage;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the message of the log entry with the value.
+     */
+    public String formatMessage(String value) {
+        return valueInMessage ? message + ": " + value : message;
+    }
+}
@@ -0,0 +1,13 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+/**
+ * Receives values which failed validation while a report is parsed.
+ * Values are passed as is, so a sink decides whether it needs them formatted.
+ */
+public interface ValidationSink {
+    void report(ValidationRule rule, String callsign, String value);
+
+    void report(ValidationRule rule, String callsign, int value);
+
+    void report(ValidationRule rule, String callsign, double value);
+}
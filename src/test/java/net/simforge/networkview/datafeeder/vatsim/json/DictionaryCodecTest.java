@@ -0,0 +1,55 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DictionaryCodecTest {
+
+    @Test
+    public void encode_decodeAcrossDictionaryVersions() throws IOException {
+        ReportDictionaries dictionaries = new ReportDictionaries(Files.createTempDirectory("dictionaries").toFile());
+        DictionaryCodec codec = new DictionaryCodec(dictionaries);
+
+        SyntheticFeed feed = new SyntheticFeed(1, 50, LocalDateTime.of(2021, 5, 24, 0, 0, 0), Duration.ofMinutes(10));
+        byte[] withoutDictionary = feed.next().getBytes(StandardCharsets.UTF_8);
+        byte[] encodedWithoutDictionary = codec.encode(withoutDictionary);
+
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            samples.add(feed.next().getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] dictionary = ReportDictionaries.train(samples, ReportDictionaries.MAX_SIZE);
+        assertTrue(dictionary.length > 0 && dictionary.length <= ReportDictionaries.MAX_SIZE);
+        assertEquals(1, dictionaries.save(dictionary));
+
+        byte[] data = feed.next().getBytes(StandardCharsets.UTF_8);
+        byte[] encoded = codec.encode(data);
+        assertTrue(encoded.length < new GZipCodec().encode(data).length);
+
+        assertEquals(2, dictionaries.save(ReportDictionaries.train(samples.subList(0, 2), 1024)));
+
+        // files keep their dictionary version, so they are readable after retraining
+        assertArrayEquals(withoutDictionary, codec.decode(encodedWithoutDictionary));
+        assertArrayEquals(data, codec.decode(encoded));
+        assertArrayEquals(data, codec.decode(codec.encode(data)));
+    }
+
+    @Test
+    public void decode_missingDictionary() throws IOException {
+        ReportDictionaries dictionaries = new ReportDictionaries(Files.createTempDirectory("dictionaries").toFile());
+        dictionaries.save("\"flight_plan\":{".getBytes(StandardCharsets.UTF_8));
+        byte[] encoded = new DictionaryCodec(dictionaries).encode("{\"flight_plan\":{}}".getBytes(StandardCharsets.UTF_8));
+
+        ReportDictionaries otherDictionaries = new ReportDictionaries(Files.createTempDirectory("dictionaries").toFile());
+        assertThrows(IOException.class, () -> new DictionaryCodec(otherDictionaries).decode(encoded));
+    }
+}
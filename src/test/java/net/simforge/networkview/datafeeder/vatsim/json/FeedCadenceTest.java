@@ -0,0 +1,113 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.report.ReportUtils;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeedCadenceTest {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final LocalDateTime START = LocalDateTime.of(2021, 6, 1, 0, 0, 5);
+
+    @Test
+    public void nextDelay_unknownCadence() {
+        FeedCadence cadence = new FeedCadence(90000);
+        assertEquals(90000, cadence.nextDelay(0));
+        assertEquals(10000, cadence.retryDelay(1));
+
+        cadence.observe(update(0), millis(0) + 2000);
+        assertEquals(0, cadence.getPeriodMillis());
+    }
+
+    @Test
+    public void nextDelay_plannedAfterPredictedPublication() {
+        FeedCadence cadence = new FeedCadence(90000);
+
+        // feed publishes every 15 seconds, reports are seen 2-4 seconds after publication
+        cadence.observe(update(0), millis(0) + 3000);
+        cadence.observe(update(90), millis(90) + 4000);
+        cadence.observe(update(105), millis(105) + 2000);
+        cadence.observe(update(195), millis(195) + 2000);
+        assertEquals(15000, cadence.getPeriodMillis());
+
+        // next report to save is 90 seconds after the last one, it is available 2 seconds after publication
+        long now = millis(195) + 2500;
+        assertEquals(millis(285) + 2000 + 1000, now + cadence.nextDelay(now));
+
+        // late planning moves to the next publication
+        now = millis(290);
+        assertEquals(millis(300) + 2000 + 1000, now + cadence.nextDelay(now));
+
+        assertEquals(1000, cadence.retryDelay(1));
+        assertEquals(4000, cadence.retryDelay(3));
+        assertEquals(10000, cadence.retryDelay(8));
+    }
+
+    @Test
+    public void observe_sparseSamplingFindsPublicationPeriod() {
+        FeedCadence cadence = new FeedCadence(90000);
+
+        // 15 seconds feed sampled about every 90 seconds, a retry now and then moves sampling to the next publication
+        cadence.observe(update(0), millis(0) + 2000);
+        cadence.observe(update(90), millis(90) + 2000);
+        assertEquals(90000, cadence.getPeriodMillis());
+        cadence.observe(update(285), millis(285) + 2000);
+        cadence.observe(update(375), millis(375) + 2000);
+        cadence.observe(update(570), millis(570) + 2000);
+        cadence.observe(update(660), millis(660) + 2000);
+        assertEquals(15000, cadence.getPeriodMillis());
+
+        long now = millis(660) + 2500;
+        assertEquals(millis(750) + 2000 + 1000, now + cadence.nextDelay(now));
+    }
+
+    @Test
+    public void observe_toleratesJitter() {
+        FeedCadence cadence = new FeedCadence(90000);
+        cadence.observe(update(0), millis(0));
+        cadence.observe(update(90), millis(90));
+        cadence.observe(update(181), millis(181));
+        assertEquals(90000, cadence.getPeriodMillis(), 1000);
+
+        // 15 seconds feed with one late update
+        cadence = new FeedCadence(90000);
+        cadence.observe(update(0), millis(0));
+        cadence.observe(update(15), millis(15));
+        cadence.observe(update(30), millis(30));
+        cadence.observe(update(46), millis(46));
+        cadence.observe(update(61), millis(61));
+        cadence.observe(update(76), millis(76));
+        assertEquals(15000, cadence.getPeriodMillis(), 1000);
+
+        // sparse sampling with jitter
+        cadence = new FeedCadence(90000);
+        cadence.observe(update(0), millis(0));
+        cadence.observe(update(90), millis(90));
+        cadence.observe(update(286), millis(286));
+        cadence.observe(update(375), millis(375));
+        cadence.observe(update(571), millis(571));
+        cadence.observe(update(660), millis(660));
+        assertEquals(15000, cadence.getPeriodMillis(), 1000);
+    }
+
+    @Test
+    public void observe_ignoresOlderUpdates() {
+        FeedCadence cadence = new FeedCadence(90000);
+        cadence.observe(update(0), millis(0));
+        cadence.observe(update(30), millis(30));
+        cadence.observe(update(15), millis(30));
+        assertEquals(30000, cadence.getPeriodMillis());
+    }
+
+    private static String update(int seconds) {
+        return START.plusSeconds(seconds).format(FORMAT);
+    }
+
+    private static long millis(int seconds) {
+        return ReportUtils.fromTimestampJava(update(seconds)).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+}
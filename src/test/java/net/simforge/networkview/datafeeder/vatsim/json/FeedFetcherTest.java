@@ -0,0 +1,214 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeedFetcherTest {
+
+    @Test
+    public void fetch_hedgeCancelsStalledMirror() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong hedgeRequested = new AtomicLong();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/stalled", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, feed("20210601000000"));
+        });
+        server.createContext("/fast", exchange -> {
+            hedgeRequested.set(System.currentTimeMillis());
+            respond(exchange, 200, feed("20210601000015"));
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        try {
+            String stalled = "http://localhost:" + server.getAddress().getPort() + "/stalled";
+            String fast = "http://localhost:" + server.getAddress().getPort() + "/fast";
+            MirrorScorer mirrors = new MirrorScorer(new Random(1), 0);
+            FeedFetcher fetcher = new FeedFetcher(new FeedHttpClient(5000, 30000), mirrors, executor, 200);
+
+            long started = System.currentTimeMillis();
+            List<String> others = new ArrayList<>(Collections.singletonList(fast));
+            FeedFetcher.Fetch fetch = fetcher.fetch(stalled, others);
+
+            assertEquals(fast, fetch.getUrl());
+            assertEquals(feed("20210601000015"), fetch.getResponse().getData());
+            assertTrue(hedgeRequested.get() - started >= 200);
+            assertTrue(others.isEmpty());
+
+            // the stalled fetch is disconnected, its thread is free long before the read timeout
+            long deadline = System.currentTimeMillis() + 5000;
+            while (executor.getActiveCount() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, executor.getActiveCount());
+
+            // the stalled mirror is scored as failed, untried mirror would be selected first
+            mirrors.success(fast, fetch.getElapsed(), "20210601000015");
+            assertEquals(fast, mirrors.select(Arrays.asList(stalled, fast)));
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void fetch_hedgeWithNewDataWinsOverNotModified() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/unchanged", exchange -> {
+            sleep(300);
+            respond(exchange, 304, null);
+        });
+        server.createContext("/updated", exchange -> {
+            sleep(300);
+            respond(exchange, 200, feed("20210601000015"));
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        try {
+            String unchanged = "http://localhost:" + server.getAddress().getPort() + "/unchanged";
+            String updated = "http://localhost:" + server.getAddress().getPort() + "/updated";
+            FeedFetcher fetcher = new FeedFetcher(new FeedHttpClient(5000, 5000), new MirrorScorer(new Random(1), 0), executor, 100);
+
+            FeedFetcher.Fetch fetch = fetcher.fetch(unchanged, new ArrayList<>(Collections.singletonList(updated)));
+
+            assertEquals(updated, fetch.getUrl());
+            assertEquals(feed("20210601000015"), fetch.getResponse().getData());
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void fetch_hedgeWaitsForFresherData() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/older", exchange -> {
+            sleep(300);
+            respond(exchange, 200, feed("20210601000000"));
+        });
+        server.createContext("/newer", exchange -> {
+            sleep(150);
+            respond(exchange, 200, feed("20210601000015"));
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+        try {
+            String older = "http://localhost:" + server.getAddress().getPort() + "/older";
+            String newer = "http://localhost:" + server.getAddress().getPort() + "/newer";
+            FeedFetcher fetcher = new FeedFetcher(new FeedHttpClient(5000, 5000), new MirrorScorer(new Random(1), 0), executor, 200);
+
+            // older data comes first, newer one is asked at 200 ms and comes within the budget after it
+            FeedFetcher.Fetch fetch = fetcher.fetch(older, new ArrayList<>(Collections.singletonList(newer)));
+
+            assertEquals(newer, fetch.getUrl());
+            assertEquals(feed("20210601000015"), fetch.getResponse().getData());
+        } finally {
+            executor.shutdownNow();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void fetch_notModified() throws IOException {
+        Map<String, String> validators = new ConcurrentHashMap<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/etag", exchange -> {
+            // validators are ignored, the same ETag tells that data is not modified
+            exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            respond(exchange, 200, feed("20210601000000"));
+        });
+        server.createContext("/conditional", exchange -> {
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            validators.put("If-None-Match", String.valueOf(ifNoneMatch));
+            validators.put("If-Modified-Since", String.valueOf(ifModifiedSince));
+            if ("\"v2\"".equals(ifNoneMatch)) {
+                respond(exchange, 304, null);
+                return;
+            }
+            exchange.getResponseHeaders().add("ETag", "\"v2\"");
+            exchange.getResponseHeaders().add("Last-Modified", "Tue, 01 Jun 2021 00:00:15 GMT");
+            respond(exchange, 200, feed("20210601000015"));
+        });
+        server.start();
+
+        try {
+            String etag = "http://localhost:" + server.getAddress().getPort() + "/etag";
+            String conditional = "http://localhost:" + server.getAddress().getPort() + "/conditional";
+            FeedFetcher fetcher = new FeedFetcher(new FeedHttpClient(5000, 5000), new MirrorScorer(), null, 0);
+
+            FeedFetcher.Fetch fetch = fetcher.fetch(etag, new ArrayList<>());
+            assertEquals(feed("20210601000000"), fetch.getResponse().getData());
+            assertEquals(ReportJSONFile.contentHash(feed("20210601000015")), fetch.getResponse().getHash());
+            assertEquals("20210601000000", fetch.getResponse().readUpdate());
+            fetcher.accept(etag, fetch.getResponse());
+            assertNull(fetcher.fetch(etag, new ArrayList<>()).getResponse());
+
+            // validators are sent only after the response is accepted
+            fetch = fetcher.fetch(conditional, new ArrayList<>());
+            assertEquals(feed("20210601000015"), fetch.getResponse().getData());
+            assertEquals("null", validators.get("If-None-Match"));
+            assertNotNull(fetcher.fetch(conditional, new ArrayList<>()).getResponse());
+
+            fetcher.accept(conditional, fetch.getResponse());
+            assertNull(fetcher.fetch(conditional, new ArrayList<>()).getResponse());
+            assertEquals("\"v2\"", validators.get("If-None-Match"));
+            assertEquals("Tue, 01 Jun 2021 00:00:15 GMT", validators.get("If-Modified-Since"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static String feed(String update) {
+        return "{\"general\":{\"update\":\"" + update + "\"},\"pilots\":[]}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+        } else {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+        }
+        exchange.close();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FeedHttpClientTest {
+
+    @Test
+    public void get_redirectGzipAndKeepAlive() throws IOException {
+        Set<InetSocketAddress> connections = Collections.synchronizedSet(new HashSet<>());
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/feed", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (OutputStream out = new GZIPOutputStream(body)) {
+                out.write("{\"general\":{\"update\":\"20210601000000\"}}".getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, body.size());
+            exchange.getResponseBody().write(body.toByteArray());
+            exchange.close();
+        });
+        server.createContext("/moved", exchange -> {
+            connections.add(exchange.getRemoteAddress());
+            byte[] body = "Moved".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Location", "/feed");
+            exchange.sendResponseHeaders(302, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            String base = "http://localhost:" + server.getAddress().getPort();
+            FeedHttpClient client = new FeedHttpClient(5000, 5000);
+            for (int i = 0; i < 3; i++) {
+                try (FeedHttpClient.Response response = client.get(base + "/moved", Collections.emptyMap(), null)) {
+                    assertEquals(200, response.getStatus());
+                    assertEquals(base + "/feed", response.getUrl());
+                    assertEquals("{\"general\":{\"update\":\"20210601000000\"}}", response.readText());
+                }
+            }
+            assertEquals(1, connections.size());
+
+            assertThrows(IOException.class, () -> client.get(base + "/missing", Collections.emptyMap(), null));
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MirrorScorerTest {
+    private static final List<String> URLS = Arrays.asList("https://a", "https://b", "https://c");
+
+    @Test
+    public void select_untriedFirstThenBest() {
+        MirrorScorer scorer = new MirrorScorer(new Random(1), 0);
+
+        scorer.success("https://a", 300, "20210601000000");
+        scorer.success("https://b", 100, "20210601000000");
+        assertEquals("https://c", scorer.select(URLS));
+
+        scorer.success("https://c", 200, "20210601000000");
+        assertEquals("https://b", scorer.select(URLS));
+    }
+
+    @Test
+    public void select_penaltiesForFailuresAndStaleness() {
+        MirrorScorer scorer = new MirrorScorer(new Random(1), 0);
+
+        scorer.success("https://a", 300, "20210601000100");
+        scorer.failure("https://b", 50);
+        scorer.success("https://c", 100, "20210601000000"); // older than one served by a
+        assertEquals("https://a", scorer.select(URLS));
+
+        // mirror recovers once it is fresh again
+        for (int i = 0; i < 15; i++) {
+            scorer.success("https://c", 100, "20210601000200");
+        }
+        assertEquals("https://c", scorer.select(URLS));
+    }
+
+    @Test
+    public void select_probesOtherMirrors() {
+        MirrorScorer scorer = new MirrorScorer(new Random(1), 0.5);
+        for (String url : URLS) {
+            scorer.success(url, url.equals("https://a") ? 10 : 1000, "20210601000000");
+        }
+
+        int probes = 0;
+        for (int i = 0; i < 100; i++) {
+            if (!scorer.select(URLS).equals("https://a")) {
+                probes++;
+            }
+        }
+        assertTrue(probes > 10 && probes < 60, "probes " + probes);
+    }
+}
@@ -0,0 +1,61 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportDeltasTest {
+
+    @Test
+    public void encode_decodesExactBytes() throws IOException {
+        SyntheticFeed feed = new SyntheticFeed(1, 2000, LocalDateTime.of(2021, 5, 24, 0, 0, 0), Duration.ofSeconds(15)).withInvalidRate(0.001);
+        byte[] keyframe = feed.next().getBytes(StandardCharsets.UTF_8);
+        String keyframeReport = feed.getReport();
+
+        for (int i = 0; i < 40; i++) {
+            byte[] data = feed.next().getBytes(StandardCharsets.UTF_8);
+            byte[] delta = ReportDeltas.encode(keyframeReport, keyframe, data);
+
+            assertEquals(keyframeReport, ReportDeltas.readKeyframeReport(delta));
+            assertArrayEquals(data, ReportDeltas.decode(keyframe, delta));
+            assertTrue(delta.length * 10 < data.length, "delta " + delta.length + " of report " + data.length);
+        }
+    }
+
+    @Test
+    public void encode_unrelatedData() throws IOException {
+        byte[] keyframe = "{\"general\":{\"update\":\"20210524000000\"},\"pilots\":[]}".getBytes(StandardCharsets.UTF_8);
+        byte[] data = "{\"pilots\":[{\"callsign\":\"\u00e9\u00e9\"},{}],\"general\":{\"update\":\"20210524000000\"}}".getBytes(StandardCharsets.UTF_8);
+
+        assertArrayEquals(data, ReportDeltas.decode(keyframe, ReportDeltas.encode("20210524000000", keyframe, data)));
+        assertArrayEquals(new byte[0], ReportDeltas.decode(keyframe, ReportDeltas.encode("20210524000000", keyframe, new byte[0])));
+    }
+
+    @Test
+    public void decode_corruptedDelta() throws IOException {
+        byte[] keyframe = "{\"a\":1,\"b\":2}".getBytes(StandardCharsets.UTF_8);
+        byte[] delta = ReportDeltas.encode("20210524000000", keyframe, "{\"a\":1,\"b\":3}".getBytes(StandardCharsets.UTF_8));
+
+        byte[] otherKeyframe = Arrays.copyOf(keyframe, keyframe.length);
+        otherKeyframe[5] = '7';
+        assertThrows(IOException.class, () -> ReportDeltas.decode(otherKeyframe, delta));
+    }
+
+    @Test
+    public void decode_copyOutOfKeyframe() throws IOException {
+        SyntheticFeed feed = new SyntheticFeed(1, 100, LocalDateTime.of(2021, 5, 24, 0, 0, 0), Duration.ofSeconds(15));
+        byte[] keyframe = feed.next().getBytes(StandardCharsets.UTF_8);
+        String keyframeReport = feed.getReport();
+        byte[] delta = ReportDeltas.encode(keyframeReport, keyframe, feed.next().getBytes(StandardCharsets.UTF_8));
+
+        byte[] shorterKeyframe = Arrays.copyOf(keyframe, keyframe.length / 2);
+        IOException e = assertThrows(IOException.class, () -> ReportDeltas.decode(shorterKeyframe, delta));
+        assertEquals("delta of keyframe " + keyframeReport + " is corrupted", e.getMessage());
+    }
+}
@@ -1,12 +1,24 @@
 package net.simforge.networkview.datafeeder.vatsim.json;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 import net.simforge.commons.io.IOHelper;
 import net.simforge.networkview.core.Network;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ReportJSONFileTest {
     @Test
@@ -28,4 +40,236 @@ public class ReportJSONFileTest {
         ReportJSONFile.ClientInfo pilotInfo = report.getPilotInfos().stream().filter(pi -> pi.getCid() == 1479856).findFirst().get();
         assertEquals(0, pilotInfo.getQnhMb().intValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void readUpdate() throws IOException {
+        String data = IOHelper.readInputStream(ReportJSONFile.class.getResourceAsStream("/20210512000120.json"));
+
+        assertEquals("20210512000120", ReportJSONFile.readUpdate(data));
+        // general goes first, the rest of report is not read
+        assertEquals("20210512000120", ReportJSONFile.readUpdate(data.substring(0, 300)));
+
+        assertEquals("20210601000000", ReportJSONFile.readUpdate("{\"pilots\":[{\"cid\":1}],\"general\":{\"version\":3,\"update\":\"20210601000000\"}}"));
+        assertNull(ReportJSONFile.readUpdate("{\"general\":{\"version\":3},\"pilots\":[]}"));
+    }
+
+    @Test
+    public void contentHash_excludesGeneral() {
+        String pilots = "\"pilots\":[{\"cid\":1,\"callsign\":\"A{B\\\"\",\"latitude\":51.5}]";
+        String hash = ReportJSONFile.contentHash("{\"general\":{\"update\":\"20210601000000\",\"connected_clients\":1}," + pilots + "}");
+
+        assertEquals(hash, ReportJSONFile.contentHash("{\"general\":{\"update\":\"20210601000015\",\"connected_clients\":1}," + pilots + "}"));
+        assertNotEquals(hash, ReportJSONFile.contentHash("{\"general\":{\"update\":\"20210601000015\",\"connected_clients\":1}," + pilots.replace("51.5", "51.6") + "}"));
+
+        // general goes last
+        String last = ReportJSONFile.contentHash("{" + pilots + ",\"general\":{\"update\":\"20210601000000\"}}");
+        assertEquals(last, ReportJSONFile.contentHash("{" + pilots + ",\"general\":{\"update\":\"20210601000015\"}}"));
+    }
+
+    @Test
+    public void contentHash_streamedInChunks() throws IOException {
+        byte[] data = IOHelper.readInputStream(ReportJSONFile.class.getResourceAsStream("/20210512000120.json")).getBytes(StandardCharsets.UTF_8);
+        String hash = ReportJSONFile.contentHash(new String(data, StandardCharsets.UTF_8));
+
+        Random random = new Random(1);
+        for (int i = 0; i < 10; i++) {
+            ContentHash streamed = new ContentHash();
+            int offset = 0;
+            while (offset < data.length) {
+                int length = Math.min(1 + random.nextInt(i == 0 ? 2 : 5000), data.length - offset);
+                streamed.update(data, offset, length);
+                offset += length;
+            }
+            assertEquals(hash, streamed.getValue());
+        }
+
+        String pilots = "\"pilots\":[{\"cid\":1,\"callsign\":\"A{B\\\"\"}]";
+        assertEquals(ReportJSONFile.contentHash("{\"general\":5," + pilots + "}"), ReportJSONFile.contentHash("{\"general\" : 6 ," + pilots + "}"));
+        assertNotEquals(ReportJSONFile.contentHash("{\"general\":5," + pilots + "}"), ReportJSONFile.contentHash("{\"generals\":5," + pilots + "}"));
+    }
+
+    @Test
+    public void load_sectionsInAnyOrder() {
+        String data = "{\"controllers\":[{\"cid\":1,\"callsign\":\"EGLL_TWR\"}]," +
+                "\"pilots\":[{\"cid\":1234567,\"callsign\":\" TEST1 \",\"latitude\":51.5,\"longitude\":-0.5,\"altitude\":1000,\"groundspeed\":150,\"heading\":270,\"qnh_mb\":1013,\"flight_plan\":null}]," +
+                "\"general\":{\"version\":3,\"update\":\"20210601000000\"}}";
+        ReportJSONFile report = new ReportJSONFile(Network.VATSIM, data);
+
+        assertEquals("20210601000000", report.getUpdate());
+        assertEquals(1, report.getPilotInfos().size());
+
+        ReportJSONFile.ClientInfo pilotInfo = report.getPilotInfos().get(0);
+        assertEquals("TEST1", pilotInfo.getCallsign());
+        assertEquals(1234567, pilotInfo.getCid());
+        assertEquals(1013, pilotInfo.getQnhMb().intValue());
+        assertNull(pilotInfo.getPlannedAircraft());
+        assertEquals(0, report.getValidation().getTotalCount());
+    }
+
+    @Test
+    public void load_fromBytes() throws IOException {
+        String data = IOHelper.readInputStream(ReportJSONFile.class.getResourceAsStream("/20210512000120.json"));
+        byte[] bytes = data.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream gos = new GZIPOutputStream(gzipped)) {
+            gos.write(bytes);
+        }
+
+        ReportJSONFile fromGzip = ReportJSONFile.parse(Network.VATSIM, new GZIPInputStream(new ByteArrayInputStream(gzipped.toByteArray())));
+        ReportJSONFile fromBuffer = ReportJSONFile.parse(Network.VATSIM, ByteBuffer.wrap(bytes));
+
+        assertEquals("20210512000120", fromGzip.getUpdate());
+        assertEquals(577, fromGzip.getPilotInfos().size());
+        assertEquals("20210512000120", fromBuffer.getUpdate());
+        assertEquals(577, fromBuffer.getPilotInfos().size());
+    }
+
+    @Test
+    public void load_fromBufferNonAscii() throws IOException {
+        // supplementary characters, two-byte characters and a malformed byte in callsign and remarks
+        byte[] prefix = ("{\"general\":{\"update\":\"20210512000120\"},\"pilots\":[{\"cid\":1,\"callsign\":\"\u00c5\u00c4\u00d6\",\"latitude\":1,\"longitude\":2,"
+                + "\"altitude\":3,\"groundspeed\":4,\"heading\":5,\"qnh_mb\":1013,\"flight_plan\":{\"remarks\":\"\ud83d\ude00 ").getBytes(StandardCharsets.UTF_8);
+        byte[] suffix = " \ud83d\ude00\"}}]}".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(prefix);
+        out.write(0xC3);
+        out.write(suffix);
+        byte[] bytes = out.toByteArray();
+
+        ReportJSONFile fromStream = ReportJSONFile.parse(Network.VATSIM, new ByteArrayInputStream(bytes));
+        ReportJSONFile fromBuffer = ReportJSONFile.parse(Network.VATSIM, ByteBuffer.wrap(bytes));
+
+        assertEquals("\u00c5\u00c4\u00d6", fromBuffer.getPilotInfos().get(0).getCallsign());
+        assertEquals("\ud83d\ude00 \ufffd \ud83d\ude00", fromBuffer.getPilotInfos().get(0).getPlannedRemarks());
+        assertEquals(fromStream.getPilotInfos().get(0).getPlannedRemarks(), fromBuffer.getPilotInfos().get(0).getPlannedRemarks());
+    }
+
+    @Test
+    public void limitCoordScale_reportCoords() throws IOException {
+        for (String resource : new String[]{"/20210512000120.json", "/20210524014805.json"}) {
+            String data = IOHelper.readInputStream(ReportJSONFile.class.getResourceAsStream(resource));
+            for (JsonElement pilot : JsonParser.parseString(data).getAsJsonObject().getAsJsonArray("pilots")) {
+                for (String name : new String[]{"latitude", "longitude"}) {
+                    JsonElement value = pilot.getAsJsonObject().get(name);
+                    if (value == null || value.isJsonNull()) {
+                        continue;
+                    }
+
+                    double coord = value.getAsDouble();
+                    BigDecimal reference = BigDecimal.valueOf(coord);
+                    if (reference.scale() > 6) {
+                        reference = reference.setScale(6, RoundingMode.HALF_UP);
+                    }
+                    assertEquals(reference.doubleValue(), ReportJSONFile.limitCoordScale(coord), 0, resource + " " + name + " " + coord);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void limitCoordScale() {
+        double[] coords = {0, -0.0, 1e-7, -1e-7, 4.9999995e-6, -0.0000005, 12.3456785, 179.9999995, -179.99999949, 51.4775, 1e10, 0.1 + 0.2};
+        for (double coord : coords) {
+            assertEquals(ReportJSONFile.limitCoordScaleExact(coord), ReportJSONFile.limitCoordScale(coord), 0, "coord " + coord);
+        }
+
+        Random random = new Random(1);
+        for (int i = 0; i < 1000000; i++) {
+            double coord = BigDecimal.valueOf(random.nextLong() % 180000000000000L, 3 + random.nextInt(10)).doubleValue();
+            assertEquals(ReportJSONFile.limitCoordScaleExact(coord), ReportJSONFile.limitCoordScale(coord), 0, "coord " + coord);
+        }
+    }
+
+    @Test
+    public void load_columnar() throws IOException {
+        ReportJSONFile report = ReportJSONFile.parse(Network.VATSIM, ReportJSONFile.class.getResourceAsStream("/20210524014805.json"), ReportJSONFile.ParseOptions.COLUMNAR);
+        PilotBatch pilots = report.getPilotBatch();
+
+        int index = -1;
+        for (int i = 0; i < pilots.size(); i++) {
+            if (pilots.getCid(i) == 1479856) {
+                index = i;
+            }
+        }
+        assertTrue(index >= 0);
+        assertEquals(0, pilots.getQnhMb(index));
+        assertTrue(pilots.getPlannedDepAirports().getDictionarySize() < pilots.size());
+
+        ReportJSONFile.ClientInfo pilotInfo = report.getPilotInfos().get(index);
+        assertEquals(1479856, pilotInfo.getCid());
+        assertEquals(pilots.getCallsigns().get(index), pilotInfo.getCallsign());
+        assertEquals(pilots.getLatitude(index), pilotInfo.getLatitude());
+    }
+
+    @Test
+    public void load_parallel() throws IOException {
+        ReportJSONFile sequential = ReportJSONFile.parse(Network.VATSIM, ReportJSONFile.class.getResourceAsStream("/20210524014805.json"),
+                ReportJSONFile.ParseOptions.DEFAULT.withLog(true));
+
+        // all pilots but the first one in chunks, then the first pilots validated as they are read and the rest in chunks
+        for (int threshold : new int[] {1, 300}) {
+            ReportJSONFile parallel = ReportJSONFile.parse(Network.VATSIM, ReportJSONFile.class.getResourceAsStream("/20210524014805.json"),
+                    ReportJSONFile.ParseOptions.DEFAULT.withLog(true).withParallelThreshold(threshold));
+
+            assertEquals(sequential.getPilotInfos().size(), parallel.getPilotInfos().size());
+            for (int i = 0; i < sequential.getPilotInfos().size(); i++) {
+                assertEquals(sequential.getPilotInfos().get(i).getCid(), parallel.getPilotInfos().get(i).getCid());
+            }
+
+            assertEquals(sequential.getLog().size(), parallel.getLog().size());
+            for (int i = 0; i < sequential.getLog().size(); i++) {
+                assertEquals(sequential.getLog().get(i).getObject(), parallel.getLog().get(i).getObject());
+                assertEquals(sequential.getLog().get(i).getMsg(), parallel.getLog().get(i).getMsg());
+            }
+        }
+    }
+
+    @Test
+    public void load_validationCounters() throws IOException {
+        ReportJSONFile report = ReportJSONFile.parse(Network.VATSIM, ReportJSONFile.class.getResourceAsStream("/20210524014805.json"));
+        ValidationLog validation = report.getValidation();
+
+        assertEquals(1, validation.getCount(ValidationRule.QNH_OUT_OF_RANGE));
+        assertEquals(1, validation.getSample(ValidationRule.QNH_OUT_OF_RANGE).size());
+        assertFalse(validation.isKeepingEntries());
+        assertThrows(IllegalStateException.class, report::getLog);
+    }
+
+    @Test
+    public void load_constructorKeepsLog() throws IOException {
+        String data = IOHelper.readInputStream(ReportJSONFile.class.getResourceAsStream("/20210524014805.json"));
+        ReportJSONFile report = new ReportJSONFile(Network.VATSIM, data);
+
+        assertEquals(report.getValidation().getTotalCount(), report.getLog().size());
+        assertFalse(report.getLog().isEmpty());
+    }
+
+    @Test
+    public void load_logMessages() {
+        String data = "{\"general\":{\"update\":\"20210601000000\"},\"pilots\":[" +
+                "{\"cid\":1,\"callsign\":\"AAA1\",\"latitude\":51.5,\"longitude\":-0.1,\"altitude\":0,\"groundspeed\":0,\"heading\":0}," +
+                "{\"cid\":2,\"callsign\":\"AAA2\",\"latitude\":null,\"longitude\":-0.1,\"qnh_mb\":1013}]}";
+        ReportJSONFile report = new ReportJSONFile(Network.VATSIM, data);
+
+        assertEquals(1, report.getPilotInfos().size());
+        assertEquals(2, report.getLog().size());
+        assertEquals("AAA1", report.getLog().get(0).getObject());
+        assertEquals("QNH Mb is incorrect: null", report.getLog().get(0).getMsg());
+        assertNull(report.getLog().get(0).getValue());
+        assertEquals("AAA2", report.getLog().get(1).getObject());
+        assertEquals(ValidationRule.LATITUDE_MISSING.getMessage(), report.getLog().get(1).getMsg());
+    }
+
+    @Test
+    public void load_publishingIsOptIn() throws IOException {
+        Map<ValidationRule, Long> before = ValidationLog.getTotals();
+        new ReportJSONFile(Network.VATSIM, IOHelper.readInputStream(ReportJSONFile.class.getResourceAsStream("/20210524014805.json")));
+        ReportJSONFile.parse(Network.VATSIM, ReportJSONFile.class.getResourceAsStream("/20210524014805.json"));
+        assertEquals(before, ValidationLog.getTotals());
+
+        ReportJSONFile.parse(Network.VATSIM, ReportJSONFile.class.getResourceAsStream("/20210524014805.json"),
+                ReportJSONFile.ParseOptions.COLUMNAR.withPublishing(true));
+        assertEquals(before.get(ValidationRule.QNH_OUT_OF_RANGE) + 1, ValidationLog.getTotals().get(ValidationRule.QNH_OUT_OF_RANGE).longValue());
+    }
+}
@@ -0,0 +1,382 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.Network;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportJSONStorageTest {
+    private final List<Path> roots = new ArrayList<>();
+    private final List<ReportJSONStorage> storages = new ArrayList<>();
+
+    @After
+    public void cleanUp() throws IOException {
+        for (ReportJSONStorage storage : storages) {
+            storage.close();
+        }
+        for (Path root : roots) {
+            deleteTree(root);
+        }
+    }
+
+    @Test
+    public void getStorage_sameRootSameInstance() throws IOException {
+        String root = createRoot("report-storage");
+        ReportJSONStorage storage = ReportJSONStorage.getStorage(root, Network.VATSIM);
+        storages.add(storage);
+
+        assertSame(storage, ReportJSONStorage.getStorage(root, Network.VATSIM));
+    }
+
+    @Test
+    public void index_keptCurrent() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+
+        // written by another process before the index is built
+        File file = storage.getReportFile("20210525000100");
+        assertTrue(file.getParentFile().mkdirs());
+        Files.write(file.toPath(), "{}".getBytes());
+
+        storage.saveReport("20210524235900", "{}");
+        storage.saveReport("20210525000000", "{}");
+
+        assertEquals("20210524235900", storage.getFirstReport());
+        assertEquals("20210525000100", storage.getLastReport());
+        assertEquals("20210525000000", storage.getNextReport("20210524235900"));
+        assertNull(storage.getNextReport("20210525000100"));
+        assertNull(storage.getNextReport("20210525000030"));
+
+        storage.saveReport("20210525000200", "{}");
+        assertTrue(storage.getReportFile("20210524235900").delete());
+        storage.reportDeleted("20210524235900");
+
+        assertEquals("20210525000000", storage.getFirstReport());
+        assertEquals("20210525000200", storage.getLastReport());
+        assertEquals("20210525000100", storage.getFirstReportAfter(LocalDateTime.of(2021, 5, 25, 0, 0, 30)));
+        assertNull(storage.getFirstReportAfter(LocalDateTime.of(2021, 5, 25, 0, 2, 0)));
+        assertEquals(Arrays.asList("20210525000000", "20210525000100"), Arrays.asList(storage.getReports("20210525000000", "20210525000200").toArray()));
+        assertEquals(storage.listAllReports(), Arrays.asList(storage.getReports("0", "9").toArray()));
+    }
+
+    @Test
+    public void index_emptyStorage() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+
+        assertNull(storage.getFirstReport());
+        assertNull(storage.getLastReport());
+        assertNull(storage.getNextReport("20210525000000"));
+        assertEquals(Collections.emptyList(), storage.listAllReports());
+    }
+
+    @Test
+    public void listReports_range() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+
+        List<String> reports = Arrays.asList("20201231235900", "20210131235900", "20210201000000", "20210201000100", "20210301000000");
+        for (String report : reports) {
+            storage.saveReport(report, "{}");
+        }
+
+        assertEquals(reports, storage.listReports(null, null).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("20210131235900", "20210201000000"),
+                storage.listReports("20210101000000", "20210201000100").collect(Collectors.toList()));
+        assertEquals(Collections.singletonList("20210201000100"),
+                storage.listReports("20210201000100", "20210201000101").collect(Collectors.toList()));
+        assertEquals(Collections.emptyList(), storage.listReports("20210302000000", null).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("20210201000100", "20210301000000"), storage.listReports("20210201000100", null).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void awaitNextReport_wakesOnSave() throws Exception {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+        storage.saveReport("20210525000000", "{}");
+
+        assertNull(storage.awaitNextReport("20210525000000", 10));
+
+        Thread saver = new Thread(() -> {
+            try {
+                Thread.sleep(200);
+                storage.saveReport("20210525000100", "{}");
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        saver.start();
+
+        assertEquals("20210525000100", storage.awaitNextReport("20210525000000", 10000));
+        saver.join();
+    }
+
+    @Test
+    public void awaitNextReport_seesReportsOfOtherProcesses() throws Exception {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+        storage.saveReport("20210525000000", "{}");
+        storage.startWatching();
+
+        File file = storage.getReportFile("20210526000000");
+        assertTrue(file.getParentFile().mkdirs());
+        Files.write(file.toPath(), "{}".getBytes());
+
+        assertEquals("20210526000000", storage.awaitNextReport("20210525000000", 10000));
+    }
+
+    @Test
+    public void close_stopsWatcherAndReleasesStorage() throws Exception {
+        String root = createRoot("report-storage");
+        ReportJSONStorage storage = ReportJSONStorage.getStorage(root, Network.VATSIM);
+        storages.add(storage);
+        storage.startWatching();
+        assertTrue(isWatcherRunning());
+
+        storage.close();
+        assertFalse(isWatcherRunning());
+        ReportJSONStorage reopened = ReportJSONStorage.getStorage(root, Network.VATSIM);
+        storages.add(reopened);
+        assertNotSame(storage, reopened);
+    }
+
+    @Test
+    public void segments_saveLoadSeal() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.SEGMENTS);
+
+        List<String> reports = saveReports(storage, new SyntheticFeed(1, 10, LocalDateTime.of(2021, 5, 24, 23, 59, 0), Duration.ofSeconds(20)), 6);
+
+        assertFalse(storage.getReportFile(reports.get(0)).exists());
+        assertEquals(reports, storage.listAllReports());
+        assertEquals(reports.subList(3, 6), storage.listReports("20210525000000", null).collect(Collectors.toList()));
+        assertEquals(reports.get(4), storage.getNextReport(reports.get(3)));
+        assertEquals(10, storage.loadReport(reports.get(4)).getPilotInfos().size());
+        assertEquals(10, storage.loadReport(reports.get(4), ReportJSONFile.ParseOptions.DEFAULT.withMappedRead(true)).getPilotInfos().size());
+
+        assertNull(storage.sealNextSegment(LocalDateTime.of(2021, 5, 24, 23, 59, 58)));
+        assertEquals("2021052423", storage.sealNextSegment(LocalDateTime.of(2021, 5, 25, 0, 30, 0)));
+        assertNull(storage.sealNextSegment(LocalDateTime.of(2021, 5, 25, 0, 30, 0)));
+
+        for (String report : reports) {
+            assertEquals(report, storage.loadReport(report).getUpdate());
+            assertEquals(report, storage.loadReport(report, ReportJSONFile.ParseOptions.DEFAULT.withMappedRead(true)).getUpdate());
+        }
+        storage.rebuildIndex();
+        assertEquals(reports, storage.listAllReports());
+        assertThrows(IOException.class, () -> storage.saveReport("20210524235959", "{}"));
+    }
+
+    @Test
+    public void segments_readSealedHour() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.SEGMENTS);
+
+        Map<String, String> datas = saveReportDatas(storage, new SyntheticFeed(1, 100, LocalDateTime.of(2021, 5, 24, 23, 0, 0), Duration.ofSeconds(15)), 240);
+        List<String> reports = new ArrayList<>(datas.keySet());
+        assertEquals("2021052423", storage.sealNextSegment(LocalDateTime.of(2021, 5, 25, 0, 0, 0)));
+
+        // every report is a gzip member of its own, the index points to it
+        ReportSegments segments = new ReportSegments(storage);
+        List<String> index = Files.readAllLines(segments.getIndexFile("2021052423").toPath());
+        assertEquals(reports.size(), index.size());
+        byte[] sealed = Files.readAllBytes(segments.getSealedSegmentFile("2021052423").toPath());
+        String[] last = index.get(index.size() - 1).split(" ");
+        assertEquals(sealed.length, Long.parseLong(last[3]) + Long.parseLong(last[4]));
+
+        for (int i = 0; i < reports.size(); i++) {
+            assertEquals(datas.get(reports.get(i)), StandardCharsets.UTF_8.decode(storage.mapReport(reports.get(i))).toString());
+        }
+        assertEquals(reports, storage.listAllReports());
+    }
+
+    @Test
+    public void loadReport_mapped() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+
+        saveReports(storage, new SyntheticFeed(1, 100, LocalDateTime.of(2021, 5, 24, 0, 0, 0), Duration.ofSeconds(15)).withInvalidRate(0.01), 1);
+
+        ReportJSONFile streamed = storage.loadReport("20210524000000", ReportJSONFile.ParseOptions.DEFAULT.withLog(true));
+        ReportJSONFile mapped = storage.loadReport("20210524000000", ReportJSONFile.ParseOptions.DEFAULT.withLog(true).withMappedRead(true));
+
+        assertTrue(storage.mapReport("20210524000000").isReadOnly());
+        assertEquals(streamed.getPilotInfos().size(), mapped.getPilotInfos().size());
+        assertEquals(streamed.getLog().size(), mapped.getLog().size());
+    }
+
+    @Test
+    public void loadReport_gzippedAndArchived() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+
+        List<String> reports = saveReports(storage, new SyntheticFeed(1, 10, LocalDateTime.of(2021, 5, 24, 23, 59, 0), Duration.ofSeconds(20)), 6);
+
+        // the same as GZipReports and DailyArchive do: all reports of 2021-05-24 are archived, the first one of 2021-05-25 is gzipped
+        for (String report : reports.subList(0, 4)) {
+            File file = storage.getReportFile(report);
+            try (GZIPOutputStream out = new GZIPOutputStream(new FileOutputStream(storage.getReportFile(report, new GZipCodec())))) {
+                out.write(Files.readAllBytes(file.toPath()));
+            }
+            assertTrue(file.delete());
+        }
+        File dateFolder = storage.getReportFile(reports.get(0)).getParentFile();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(storage.getArchiveFile(reports.get(0))))) {
+            for (String report : reports.subList(0, 3)) {
+                out.putNextEntry(new ZipEntry(report + ".json.gz"));
+                out.write(Files.readAllBytes(storage.getReportFile(report, new GZipCodec()).toPath()));
+                out.closeEntry();
+            }
+        }
+        for (String report : reports.subList(0, 3)) {
+            assertTrue(storage.getReportFile(report, new GZipCodec()).delete());
+        }
+        assertTrue(dateFolder.delete());
+
+        assertEquals(reports, storage.listAllReports());
+        assertEquals(reports.subList(1, 5), storage.listReports(reports.get(1), reports.get(5)).collect(Collectors.toList()));
+        assertEquals(reports.get(1), storage.getNextReport(reports.get(0)));
+        for (String report : reports) {
+            assertEquals(report, storage.loadReport(report).getUpdate());
+            assertEquals(report, storage.loadReport(report, ReportJSONFile.ParseOptions.DEFAULT.withMappedRead(true)).getUpdate());
+        }
+        assertThrows(FileNotFoundException.class, () -> storage.loadReport("20210524000000"));
+    }
+
+    @Test
+    public void deltas_saveLoad() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.DELTAS);
+
+        Map<String, String> datas = saveReportDatas(storage, new SyntheticFeed(1, 100, LocalDateTime.of(2021, 5, 24, 23, 50, 0), Duration.ofSeconds(15)), 100);
+        List<String> reports = new ArrayList<>(datas.keySet());
+
+        assertTrue(storage.getReportFile(reports.get(0)).exists());
+        assertFalse(storage.getReportFile(reports.get(1)).exists());
+        assertTrue(storage.getReportFile("20210525000000").exists()); // keyframes do not cross days
+        assertEquals(reports.get(2), storage.getNextReport(reports.get(1)));
+
+        storage.rebuildIndex();
+        assertEquals(reports, storage.listAllReports());
+        for (int i = 0; i < reports.size(); i++) {
+            assertEquals(datas.get(reports.get(i)), StandardCharsets.UTF_8.decode(storage.mapReport(reports.get(i))).toString());
+            assertEquals(reports.get(i), storage.loadReport(reports.get(i)).getUpdate());
+        }
+    }
+
+    @Test
+    public void coldRoot_moveAndRead() throws IOException {
+        String coldRoot = createRoot("report-storage-cold");
+        ReportJSONStorage storage = createStorage(coldRoot, ReportJSONStorage.Layout.FILES);
+
+        List<String> reports = saveReports(storage, new SyntheticFeed(1, 10, LocalDateTime.of(2021, 5, 24, 23, 59, 0), Duration.ofSeconds(20)), 6);
+
+        GZipCodec codec = new GZipCodec();
+        for (String report : reports.subList(0, 3)) {
+            File file = storage.getReportFile(report);
+            Files.write(storage.getReportFile(report, codec).toPath(), codec.encode(Files.readAllBytes(file.toPath())));
+            assertTrue(file.delete());
+        }
+
+        assertEquals("2021-05-24", storage.moveNextDayToCold(LocalDate.of(2021, 5, 26)));
+        assertNull(storage.moveNextDayToCold(LocalDate.of(2021, 5, 26))); // 2021-05-25 has reports not compressed yet
+        assertNull(storage.moveNextDayToCold(LocalDate.of(2021, 5, 25)));
+
+        assertFalse(storage.getReportFile(reports.get(0)).getParentFile().exists());
+        assertTrue(new File(coldRoot, "VATSIM/2021/2021-05/2021-05-24/" + reports.get(0) + GZipCodec.EXTENSION).exists());
+
+        storage.rebuildIndex();
+        assertEquals(reports, storage.listAllReports());
+        assertEquals(reports.subList(2, 4), storage.listReports(reports.get(2), reports.get(4)).collect(Collectors.toList()));
+        assertEquals(reports.get(3), storage.getNextReport(reports.get(2)));
+        for (String report : reports) {
+            assertEquals(report, storage.loadReport(report).getUpdate());
+        }
+    }
+
+    @Test
+    public void alias_savedOutOfIndex() throws IOException {
+        ReportJSONStorage storage = createStorage(ReportJSONStorage.Layout.FILES);
+
+        storage.saveReport("20210524235900", "{\"general\":{\"update\":\"20210524235900\"},\"pilots\":[]}");
+        storage.saveAlias("20210525000100", "20210524235900");
+        storage.saveReport("20210526000000", "{\"general\":{\"update\":\"20210526000000\"},\"pilots\":[]}");
+
+        assertEquals("20210524235900", storage.getAliasTarget("20210525000100"));
+        assertNull(storage.getAliasTarget("20210524235900"));
+        assertFalse(storage.getReportFile("20210525000100").getParentFile().exists());
+
+        // consumers reading reports one by one skip the alias
+        assertEquals("20210526000000", storage.getNextReport("20210524235900"));
+        assertNull(storage.getNextReport("20210525000100"));
+        assertEquals(Arrays.asList("20210524235900", "20210526000000"), storage.listReports(null, null).collect(Collectors.toList()));
+        storage.rebuildIndex();
+        assertEquals(Arrays.asList("20210524235900", "20210526000000"), storage.listAllReports());
+
+        assertTrue(storage.reportExists("20210525000100"));
+        assertFalse(storage.reportExists("20210525000200"));
+        assertEquals("20210524235900", storage.loadReport("20210525000100").getUpdate());
+        assertEquals("20210524235900", storage.loadReport("20210525000100", ReportJSONFile.ParseOptions.DEFAULT.withMappedRead(true)).getUpdate());
+    }
+
+    private ReportJSONStorage createStorage(ReportJSONStorage.Layout layout) throws IOException {
+        return createStorage(null, layout);
+    }
+
+    /**
+     * Creates the storage in a new temporary root, the storage is closed and the root is deleted after the test.
+     */
+    private ReportJSONStorage createStorage(String coldRoot, ReportJSONStorage.Layout layout) throws IOException {
+        ReportJSONStorage storage = ReportJSONStorage.getStorage(createRoot("report-storage"), coldRoot, Network.VATSIM, layout);
+        storages.add(storage);
+        return storage;
+    }
+
+    private String createRoot(String prefix) throws IOException {
+        Path root = Files.createTempDirectory(prefix);
+        roots.add(root);
+        return root.toString();
+    }
+
+    private static List<String> saveReports(ReportJSONStorage storage, SyntheticFeed feed, int count) throws IOException {
+        return new ArrayList<>(saveReportDatas(storage, feed, count).keySet());
+    }
+
+    /**
+     * Saves next reports of the feed, returns their data by report in the saved order.
+     */
+    private static Map<String, String> saveReportDatas(ReportJSONStorage storage, SyntheticFeed feed, int count) throws IOException {
+        Map<String, String> datas = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String data = feed.next();
+            storage.saveReport(feed.getReport(), data);
+            datas.put(feed.getReport(), data);
+        }
+        return datas;
+    }
+
+    private static boolean isWatcherRunning() {
+        return Thread.getAllStackTraces().keySet().stream().anyMatch(thread -> thread.getName().startsWith("ReportWatcher-"));
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            //noinspection ResultOfMethodCallIgnored
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import org.junit.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StringDictionaryTest {
+    @Test
+    public void intern_sameInstance() {
+        StringDictionary dictionary = new StringDictionary(10);
+
+        String first = dictionary.intern(new String("EGLL"));
+        String second = dictionary.intern(new String("EGLL"));
+
+        assertSame(first, second);
+        assertEquals(1, dictionary.getHits());
+        assertEquals(1, dictionary.getMisses());
+        assertNull(dictionary.intern(null));
+    }
+
+    @Test
+    public void intern_evictsUnused() {
+        StringDictionary dictionary = new StringDictionary(3);
+
+        dictionary.intern("A");
+        dictionary.intern("B");
+        dictionary.intern("C");
+        dictionary.intern("D"); // first sweep only clears 'used' flags, so D is not stored
+        assertEquals(3, dictionary.size());
+
+        dictionary.intern("A");
+        dictionary.intern("E"); // B and C were not used since previous sweep
+
+        assertEquals(2, dictionary.getEvictions());
+        assertEquals(2, dictionary.size());
+        assertEquals(1, dictionary.getHits());
+    }
+}
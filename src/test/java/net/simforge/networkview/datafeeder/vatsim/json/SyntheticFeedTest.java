@@ -0,0 +1,66 @@
+package net.simforge.networkview.datafeeder.vatsim.json;
+
+import net.simforge.networkview.core.Network;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SyntheticFeedTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2021, 5, 24, 0, 0, 0);
+
+    @Test
+    public void next_sameSeedSameReports() {
+        SyntheticFeed feed1 = new SyntheticFeed(7, 100, START, Duration.ofSeconds(15)).withInvalidRate(0.01);
+        SyntheticFeed feed2 = new SyntheticFeed(7, 100, START, Duration.ofSeconds(15)).withInvalidRate(0.01);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(feed1.next(), feed2.next());
+        }
+    }
+
+    @Test
+    public void next_consecutiveValidReports() {
+        SyntheticFeed feed = new SyntheticFeed(1, 500, START, Duration.ofSeconds(15));
+
+        String previousReport = null;
+        for (int i = 0; i < 100; i++) {
+            ReportJSONFile report = new ReportJSONFile(Network.VATSIM, feed.next());
+
+            assertEquals(feed.getReport(), report.getUpdate());
+            assertEquals(500, report.getPilotInfos().size());
+            assertEquals(0, report.getValidation().getTotalCount());
+            if (previousReport != null) {
+                assertTrue(report.getUpdate().compareTo(previousReport) > 0);
+            }
+            previousReport = report.getUpdate();
+        }
+    }
+
+    @Test
+    public void next_pilotsMove() {
+        SyntheticFeed feed = new SyntheticFeed(1, 1, START, Duration.ofMinutes(1));
+        feed.next();
+        feed.next();
+
+        ReportJSONFile.ClientInfo before = new ReportJSONFile(Network.VATSIM, feed.next()).getPilotInfos().get(0);
+        ReportJSONFile.ClientInfo after = new ReportJSONFile(Network.VATSIM, feed.next()).getPilotInfos().get(0);
+
+        assertEquals(before.getCid(), after.getCid());
+        assertTrue(before.getLatitude() != after.getLatitude() || before.getLongitude() != after.getLongitude());
+    }
+
+    @Test
+    public void next_everyValidationRuleFires() {
+        SyntheticFeed feed = new SyntheticFeed(1, 2000, START, Duration.ofSeconds(15)).withInvalidRate(0.01);
+
+        ReportJSONFile report = new ReportJSONFile(Network.VATSIM, feed.next());
+
+        for (ValidationRule rule : ValidationRule.values()) {
+            assertTrue(report.getValidation().getCount(rule) > 0, rule.name());
+        }
+    }
+}